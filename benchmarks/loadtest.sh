@@ -0,0 +1,22 @@
+#!/usr/bin/env bash
+# Run the end-to-end load test once per request executor mode so the modes can be compared.
+#
+#   benchmarks/loadtest.sh                          # 200 req/s for 60 s, virtual and pool
+#   RATE=500 DURATION=120 benchmarks/loadtest.sh
+#   MODES=pool benchmarks/loadtest.sh -Dfoodhub.executor.threads=64
+set -euo pipefail
+
+root="$(cd "$(dirname "$0")/.." && pwd)"
+cd "$root"
+
+mvn -B -q install -DskipTests
+mvn -B -q -f benchmarks/pom.xml package
+
+for mode in ${MODES:-virtual pool}; do
+    echo "=== executor: $mode ==="
+    java -Dfoodhub.executor="$mode" \
+         -Dload.rate="${RATE:-200}" -Dload.duration="${DURATION:-60}" -Dload.warmup="${WARMUP:-15}" \
+         -Dfoodhub.accesslog.file=benchmarks/target/access-"$mode".log \
+         "$@" \
+         -cp benchmarks/target/benchmarks.jar com.foodhub.loadtest.LoadTest
+done
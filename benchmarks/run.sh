@@ -0,0 +1,25 @@
+#!/usr/bin/env bash
+# Build and run the JMH benchmarks, saving results as benchmarks/results/<commit>.json
+# so runs from different commits can be compared side by side.
+#
+#   benchmarks/run.sh                 # everything
+#   benchmarks/run.sh JsonBenchmark   # any JMH include regex / extra JMH options
+set -euo pipefail
+
+root="$(cd "$(dirname "$0")/.." && pwd)"
+cd "$root"
+
+commit="$(git rev-parse --short HEAD 2>/dev/null || echo unknown)"
+if ! git diff --quiet 2>/dev/null; then
+    commit="${commit}-dirty"
+fi
+
+mvn -B -q install -DskipTests
+mvn -B -q -f benchmarks/pom.xml package
+
+mkdir -p benchmarks/results
+java -jar benchmarks/target/benchmarks.jar \
+    -rf json -rff "benchmarks/results/${commit}.json" \
+    "$@"
+
+echo "Results written to benchmarks/results/${commit}.json"
@@ -0,0 +1,101 @@
+package com.foodhub.bench;
+
+import com.foodhub.dao.MenuItemDAO;
+import com.foodhub.dao.OrderDAO;
+import com.foodhub.model.MenuItem;
+import com.foodhub.model.Order;
+import com.foodhub.model.OrderItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MenuItemDAO/OrderDAO query paths against an in-memory H2 database in MySQL mode.
+ * Absolute numbers are not MySQL numbers; the point is to compare Hibernate/DAO
+ * overhead between commits on the same data set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+
+    static final int MENU_ITEMS = 200;
+    static final int CUSTOMERS = 1_000;
+    static final int ORDERS = 5_000;
+
+    private MenuItemDAO menuItemDAO;
+    private OrderDAO orderDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedDatabase.start("dao_bench");
+        EmbeddedDatabase.seed(MENU_ITEMS, CUSTOMERS, ORDERS);
+        menuItemDAO = new MenuItemDAO();
+        orderDAO = new OrderDAO();
+    }
+
+    private static int randomId(int max) {
+        return 1 + ThreadLocalRandom.current().nextInt(max);
+    }
+
+    @Benchmark
+    public List<MenuItem> getAvailableMenuItems() {
+        return menuItemDAO.getAvailableMenuItems();
+    }
+
+    @Benchmark
+    public List<MenuItem> getMenuItemsByCategory() {
+        return menuItemDAO.getMenuItemsByCategory(SampleData.CATEGORIES[randomId(SampleData.CATEGORIES.length) - 1]);
+    }
+
+    @Benchmark
+    public MenuItem getMenuItemById() {
+        return menuItemDAO.getMenuItemById(randomId(MENU_ITEMS));
+    }
+
+    @Benchmark
+    public Order getOrderById() {
+        return orderDAO.getOrderById(randomId(ORDERS));
+    }
+
+    @Benchmark
+    public List<Order> getOrdersByCustomerId() {
+        return orderDAO.getOrdersByCustomerId(randomId(CUSTOMERS));
+    }
+
+    @Benchmark
+    public List<OrderItem> getOrderItems() {
+        return orderDAO.getOrderItems(randomId(ORDERS));
+    }
+
+    @Benchmark
+    public List<Order> getOrdersFirstPage() {
+        return orderDAO.getOrdersPage(null, 0, 50);
+    }
+
+    @Benchmark
+    public int placeOrder() {
+        List<Order> order = SampleData.orders(1, CUSTOMERS, System.nanoTime());
+        order.get(0).setId(0);
+        List<OrderItem> items = SampleData.orderItems(5, 0, MENU_ITEMS, System.nanoTime());
+        for (OrderItem item : items) {
+            item.setId(0);
+        }
+        return orderDAO.placeOrder(order.get(0), items);
+    }
+}
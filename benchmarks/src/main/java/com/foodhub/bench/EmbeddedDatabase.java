@@ -0,0 +1,68 @@
+package com.foodhub.bench;
+
+import com.foodhub.dao.CustomerDAO;
+import com.foodhub.dao.MenuItemDAO;
+import com.foodhub.dao.OrderDAO;
+import com.foodhub.model.Customer;
+import com.foodhub.model.MenuItem;
+import com.foodhub.model.Order;
+import com.foodhub.model.OrderItem;
+
+import java.util.List;
+
+/**
+ * Points HibernateUtil at an in-memory H2 database in MySQL mode and seeds it through the
+ * DAOs. Must run before anything touches HibernateUtil, since the SessionFactory is built once.
+ */
+public final class EmbeddedDatabase {
+
+    private static boolean started;
+
+    private EmbeddedDatabase() {
+    }
+
+    public static synchronized void start(String name) {
+        if (started) {
+            return;
+        }
+        started = true;
+        System.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        System.setProperty("hibernate.connection.url",
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        System.setProperty("hibernate.connection.username", "sa");
+        System.setProperty("hibernate.connection.password", "");
+        System.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        System.setProperty("hibernate.hbm2ddl.auto", "create");
+        System.setProperty("hibernate.show_sql", "false");
+        System.setProperty("hibernate.format_sql", "false");
+        // H2 rejects MySQL's Integer.MIN_VALUE streaming fetch size
+        System.setProperty("foodhub.db.streamFetchSize", "500");
+    }
+
+    // Seed menu items, customers and orders (with 1-5 items each) through the DAO layer
+    public static void seed(int menuItems, int customers, int orders) {
+        MenuItemDAO menuItemDAO = new MenuItemDAO();
+        for (MenuItem item : SampleData.menuItems(menuItems, 1)) {
+            item.setId(0);
+            menuItemDAO.addMenuItem(item);
+        }
+
+        CustomerDAO customerDAO = new CustomerDAO();
+        for (Customer customer : SampleData.customers(customers, 2)) {
+            customer.setId(0);
+            customerDAO.addCustomer(customer);
+        }
+
+        OrderDAO orderDAO = new OrderDAO();
+        List<Order> sampleOrders = SampleData.orders(orders, customers, 3);
+        for (int i = 0; i < sampleOrders.size(); i++) {
+            Order order = sampleOrders.get(i);
+            order.setId(0);
+            List<OrderItem> items = SampleData.orderItems(1 + i % 5, 0, menuItems, i);
+            for (OrderItem item : items) {
+                item.setId(0);
+            }
+            orderDAO.placeOrder(order, items);
+        }
+    }
+}
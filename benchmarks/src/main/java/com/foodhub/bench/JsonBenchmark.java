@@ -0,0 +1,107 @@
+package com.foodhub.bench;
+
+import com.foodhub.api.RestServer;
+import com.foodhub.model.Customer;
+import com.foodhub.model.MenuItem;
+import com.foodhub.model.Order;
+import com.foodhub.model.OrderItem;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Gson round trips for each entity list, using the same Gson configuration as RestServer
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JsonBenchmark {
+
+    private static final Type MENU_ITEMS = new TypeToken<List<MenuItem>>() {}.getType();
+    private static final Type CUSTOMERS = new TypeToken<List<Customer>>() {}.getType();
+    private static final Type ORDERS = new TypeToken<List<Order>>() {}.getType();
+    private static final Type ORDER_ITEMS = new TypeToken<List<OrderItem>>() {}.getType();
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private final Gson gson = RestServer.createGson();
+
+    private List<MenuItem> menuItems;
+    private List<Customer> customers;
+    private List<Order> orders;
+    private List<OrderItem> orderItems;
+
+    private String menuItemsJson;
+    private String customersJson;
+    private String ordersJson;
+    private String orderItemsJson;
+
+    @Setup
+    public void setUp() {
+        menuItems = SampleData.menuItems(size, 1);
+        customers = SampleData.customers(size, 2);
+        orders = SampleData.orders(size, 1000, 3);
+        orderItems = SampleData.orderItems(size, 1, 200, 4);
+
+        menuItemsJson = gson.toJson(menuItems);
+        customersJson = gson.toJson(customers);
+        ordersJson = gson.toJson(orders);
+        orderItemsJson = gson.toJson(orderItems);
+    }
+
+    @Benchmark
+    public String serializeMenuItems() {
+        return gson.toJson(menuItems);
+    }
+
+    @Benchmark
+    public String serializeCustomers() {
+        return gson.toJson(customers);
+    }
+
+    @Benchmark
+    public String serializeOrders() {
+        return gson.toJson(orders);
+    }
+
+    @Benchmark
+    public String serializeOrderItems() {
+        return gson.toJson(orderItems);
+    }
+
+    @Benchmark
+    public List<MenuItem> deserializeMenuItems() {
+        return gson.fromJson(menuItemsJson, MENU_ITEMS);
+    }
+
+    @Benchmark
+    public List<Customer> deserializeCustomers() {
+        return gson.fromJson(customersJson, CUSTOMERS);
+    }
+
+    @Benchmark
+    public List<Order> deserializeOrders() {
+        return gson.fromJson(ordersJson, ORDERS);
+    }
+
+    @Benchmark
+    public List<OrderItem> deserializeOrderItems() {
+        return gson.fromJson(orderItemsJson, ORDER_ITEMS);
+    }
+}
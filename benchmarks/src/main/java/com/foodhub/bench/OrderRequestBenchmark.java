@@ -0,0 +1,44 @@
+package com.foodhub.bench;
+
+import com.foodhub.api.OrderRequest;
+import com.foodhub.api.RestServer;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Parsing the POST /api/orders body exactly as OrderHandler does
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OrderRequestBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int items;
+
+    private final Gson gson = RestServer.createGson();
+    private String body;
+
+    @Setup
+    public void setUp() {
+        body = SampleData.orderRequestBody(items, 200, 42);
+    }
+
+    @Benchmark
+    public OrderRequest parseOrderRequest() {
+        return OrderRequest.parse(gson, body);
+    }
+}
@@ -0,0 +1,103 @@
+package com.foodhub.bench;
+
+import com.foodhub.dao.CustomerDAO;
+import com.foodhub.dao.FieldSet;
+import com.foodhub.dao.OrderDAO;
+import com.foodhub.model.Customer;
+import com.foodhub.model.Order;
+import com.foodhub.util.HibernateUtil;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * List reads through a regular stateful Session (the old DAO path, reproduced here) against the
+ * DAOs' stateless read path on the same data, and against ?fields= projections of the same rows.
+ * Run with the GC profiler to compare allocation per call (gc.alloc.rate.norm):
+ *
+ *   benchmarks/run.sh ReadPathBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadPathBenchmark {
+
+    private static final int PAGE_SIZE = 200;
+
+    private CustomerDAO customerDAO;
+    private OrderDAO orderDAO;
+    private FieldSet orderListFields;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EmbeddedDatabase.start("read_path_bench");
+        EmbeddedDatabase.seed(DaoBenchmark.MENU_ITEMS, DaoBenchmark.CUSTOMERS, DaoBenchmark.ORDERS);
+        customerDAO = new CustomerDAO();
+        orderDAO = new OrderDAO();
+        orderListFields = OrderDAO.fieldSet("status,totalAmount");
+    }
+
+    @Benchmark
+    public List<Order> allOrdersStateful() {
+        try (Session session = HibernateUtil.openSession()) {
+            return session.createQuery("FROM Order ORDER BY orderDate DESC", Order.class).list();
+        }
+    }
+
+    @Benchmark
+    public List<Order> allOrdersStateless() {
+        return orderDAO.getAllOrders();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> allOrdersProjected() {
+        return orderDAO.getAllOrders(orderListFields);
+    }
+
+    @Benchmark
+    public List<Order> ordersPageStateful() {
+        try (Session session = HibernateUtil.openSession()) {
+            return session.createQuery("FROM Order ORDER BY orderDate DESC, id DESC", Order.class)
+                    .setMaxResults(PAGE_SIZE)
+                    .list();
+        }
+    }
+
+    @Benchmark
+    public List<Order> ordersPageStateless() {
+        return orderDAO.getOrdersPage(null, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> ordersPageProjected() {
+        return orderDAO.getOrdersPage(null, 0, PAGE_SIZE, orderListFields);
+    }
+
+    @Benchmark
+    public List<Customer> allCustomersStateful() {
+        try (Session session = HibernateUtil.openSession()) {
+            return session.createQuery("FROM Customer", Customer.class).list();
+        }
+    }
+
+    @Benchmark
+    public List<Customer> allCustomersStateless() {
+        return customerDAO.getAllCustomers();
+    }
+}
@@ -0,0 +1,121 @@
+package com.foodhub.bench;
+
+import com.foodhub.model.Customer;
+import com.foodhub.model.MenuItem;
+import com.foodhub.model.Order;
+import com.foodhub.model.OrderItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic, realistically shaped entities so results are comparable between runs
+public final class SampleData {
+
+    public static final String[] CATEGORIES = {"Burgers", "Pizza", "Rice", "Kottu", "Drinks", "Desserts"};
+    private static final String[] STATUSES = {"PENDING", "PREPARING", "READY", "DELIVERED"};
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private SampleData() {
+    }
+
+    public static List<MenuItem> menuItems(int count, long seed) {
+        Random random = new Random(seed);
+        List<MenuItem> items = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            MenuItem item = new MenuItem();
+            item.setId(i);
+            item.setName("Menu item " + i);
+            item.setDescription("Freshly prepared " + CATEGORIES[i % CATEGORIES.length].toLowerCase()
+                    + " with house sauce, seasonal vegetables and a side of your choice. Serves one.");
+            item.setPrice(price(random, 250, 3500));
+            item.setCategory(CATEGORIES[i % CATEGORIES.length]);
+            item.setAvailable(random.nextInt(10) > 0);
+            item.setImageUrl("https://cdn.foodhub.lk/menu/" + i + ".jpg");
+            items.add(item);
+        }
+        return items;
+    }
+
+    public static List<Customer> customers(int count, long seed) {
+        Random random = new Random(seed);
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Customer customer = new Customer();
+            customer.setId(i);
+            customer.setName("Customer " + i);
+            customer.setPhone(String.format("07%08d", random.nextInt(100_000_000)));
+            customer.setEmail("customer" + i + "@example.com");
+            customer.setAddress(i + ", Galle Road, Colombo " + (1 + random.nextInt(15)));
+            customer.setCreatedDate(new Date(System.currentTimeMillis() - random.nextInt(365) * DAY_MILLIS));
+            customers.add(customer);
+        }
+        return customers;
+    }
+
+    public static List<Order> orders(int count, int customerCount, long seed) {
+        Random random = new Random(seed);
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Order order = new Order();
+            order.setId(i);
+            order.setCustomerId(1 + random.nextInt(customerCount));
+            order.setOrderDate(new Date(System.currentTimeMillis() - random.nextInt(90) * DAY_MILLIS));
+            order.setTotalAmount(price(random, 500, 12000));
+            order.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            order.setDeliveryAddress(i + ", Duplication Road, Colombo " + (1 + random.nextInt(15))
+                    + ". Ring the bell twice and leave at the gate if nobody answers.");
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    public static List<OrderItem> orderItems(int count, int orderId, int menuItemCount, long seed) {
+        Random random = new Random(seed);
+        List<OrderItem> items = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            OrderItem item = new OrderItem();
+            item.setId(i);
+            item.setOrderId(orderId);
+            item.setMenuItemId(1 + random.nextInt(menuItemCount));
+            item.setQuantity(1 + random.nextInt(4));
+            item.setUnitPrice(price(random, 250, 3500));
+            item.setSubtotal(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            items.add(item);
+        }
+        return items;
+    }
+
+    // JSON body in the shape the frontend sends to POST /api/orders
+    public static String orderRequestBody(int itemCount, int menuItemCount, long seed) {
+        Random random = new Random(seed);
+        StringBuilder body = new StringBuilder(128 + itemCount * 96);
+        BigDecimal total = BigDecimal.ZERO;
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < itemCount; i++) {
+            int quantity = 1 + random.nextInt(4);
+            BigDecimal unitPrice = price(random, 250, 3500);
+            BigDecimal subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            total = total.add(subtotal);
+            if (i > 0) {
+                items.append(',');
+            }
+            items.append("{\"menuItemId\":").append(1 + random.nextInt(menuItemCount))
+                    .append(",\"quantity\":").append(quantity)
+                    .append(",\"unitPrice\":").append(unitPrice)
+                    .append(",\"subtotal\":").append(subtotal).append('}');
+        }
+        body.append("{\"customerId\":").append(1 + random.nextInt(1000))
+                .append(",\"totalAmount\":").append(total)
+                .append(",\"deliveryAddress\":\"12, Duplication Road, Colombo 3\"")
+                .append(",\"items\":[").append(items).append("]}");
+        return body.toString();
+    }
+
+    private static BigDecimal price(Random random, int minRupees, int maxRupees) {
+        int cents = (minRupees + random.nextInt(maxRupees - minRupees)) * 100 + random.nextInt(4) * 25;
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
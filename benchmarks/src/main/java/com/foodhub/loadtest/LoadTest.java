@@ -0,0 +1,231 @@
+package com.foodhub.loadtest;
+
+import com.foodhub.api.RestServer;
+import com.foodhub.bench.EmbeddedDatabase;
+import com.foodhub.bench.SampleData;
+import com.foodhub.metrics.LatencyHistogram;
+import com.sun.net.httpserver.HttpServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test: seeds an in-memory H2 database, starts RestServer on it and drives a
+ * weighted mix of requests at a fixed arrival rate (open model).
+ *
+ * Requests are issued on schedule whether or not earlier ones have completed, and latency is
+ * measured from the intended start time, so a stalled server shows up as queueing delay
+ * instead of being hidden by a slowed-down client (coordinated omission).
+ *
+ * System properties:
+ *   load.rate      requests per second (default 200)
+ *   load.duration  measured seconds (default 60)
+ *   load.warmup    unmeasured warmup seconds (default 15)
+ *   load.port      server port (default 18080)
+ *   load.orders    seeded orders (default 20000)
+ * plus any server setting, e.g. -Dfoodhub.executor=pool to compare executor modes.
+ */
+public class LoadTest {
+
+    private static final int MENU_ITEMS = 200;
+    private static final int CUSTOMERS = 5_000;
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final List<Operation> operations = new ArrayList<>();
+    private int totalWeight;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final int orderCount;
+
+    LoadTest(int port, int orderCount) {
+        this.baseUrl = "http://localhost:" + port;
+        this.orderCount = orderCount;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(8))
+                .build();
+
+        // Roughly the production mix: mostly menu browsing, then tracking, then writes
+        add("GET /api/menu", 35, random -> get("/api/menu"));
+        add("GET /api/menu/category", 10, random ->
+                get("/api/menu/category?category=" + SampleData.CATEGORIES[random.nextInt(SampleData.CATEGORIES.length)]));
+        add("GET /api/customer", 15, random -> get("/api/customer?id=" + (1 + random.nextInt(CUSTOMERS))));
+        add("GET /api/order", 10, random -> get("/api/order?id=" + (1 + random.nextInt(orderCount))));
+        add("GET /api/orders?customerId", 10, random -> get("/api/orders?customerId=" + (1 + random.nextInt(CUSTOMERS))));
+        add("POST /api/orders", 12, random -> post("/api/orders",
+                SampleData.orderRequestBody(1 + random.nextInt(5), MENU_ITEMS, random.nextLong())));
+        add("PUT /api/order/status", 8, random -> put("/api/order/status",
+                "{\"orderId\":" + (1 + random.nextInt(orderCount)) + ",\"status\":\"PREPARING\"}"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("load.rate", 200);
+        int duration = Integer.getInteger("load.duration", 60);
+        int warmup = Integer.getInteger("load.warmup", 15);
+        int port = Integer.getInteger("load.port", 18080);
+        int orders = Integer.getInteger("load.orders", 20_000);
+
+        System.out.println("Seeding embedded database...");
+        EmbeddedDatabase.start("loadtest");
+        EmbeddedDatabase.seed(MENU_ITEMS, CUSTOMERS, orders);
+
+        HttpServer server = RestServer.start(port);
+        LoadTest test = new LoadTest(port, orders);
+        try {
+            System.out.printf("Warmup: %d s at %d req/s%n", warmup, rate);
+            test.run(rate, warmup);
+
+            System.out.printf("Measuring: %d s at %d req/s (executor=%s)%n",
+                    duration, rate, System.getProperty("foodhub.executor", "virtual"));
+            List<Operation> results = test.run(rate, duration);
+            report(results, duration);
+        } finally {
+            server.stop(0);
+            System.exit(0);
+        }
+    }
+
+    private void add(String name, int weight, RequestFactory factory) {
+        operations.add(new Operation(name, weight, factory));
+        totalWeight += weight;
+    }
+
+    // Issue requests at a fixed rate for the given time, then wait for stragglers
+    private List<Operation> run(int rate, int seconds) throws InterruptedException {
+        for (Operation operation : operations) {
+            operation.reset();
+        }
+        Random random = new Random(seconds * 31L + rate);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * seconds;
+        long start = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+            long sent = now;
+            Operation operation = pick(random);
+            HttpRequest request = operation.factory.create(random);
+            outstanding.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long end = System.nanoTime();
+                        boolean ok = error == null && response.statusCode() < 400;
+                        operation.record(intended, sent, end, ok);
+                        outstanding.decrementAndGet();
+                    });
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return operations;
+    }
+
+    private Operation pick(Random random) {
+        int r = random.nextInt(totalWeight);
+        for (Operation operation : operations) {
+            r -= operation.weight;
+            if (r < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    private static void report(List<Operation> results, int seconds) {
+        System.out.println();
+        System.out.printf("%-28s %8s %7s %9s %9s %9s %9s %9s %9s %11s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+        LatencyHistogram all = new LatencyHistogram();
+        long errors = 0;
+        for (Operation operation : results) {
+            print(operation.name, operation.latency, operation.serviceTime, operation.errors.sum(), seconds);
+            all.add(operation.latency);
+            errors += operation.errors.sum();
+        }
+        print("ALL", all, null, errors, seconds);
+        System.out.println();
+        System.out.println("Latency is measured from each request's intended start time (coordinated-omission corrected);");
+        System.out.println("'svc p99' is measured from when the request was actually sent.");
+    }
+
+    private static void print(String name, LatencyHistogram latency, LatencyHistogram service, long errors, int seconds) {
+        System.out.printf("%-28s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %11s%n",
+                name, latency.count(), errors, latency.count() / (double) seconds,
+                latency.percentile(50) / 1000.0, latency.percentile(90) / 1000.0,
+                latency.percentile(99) / 1000.0, latency.percentile(99.9) / 1000.0,
+                latency.maxMicros() / 1000.0,
+                service == null ? "" : String.format("%.2f", service.percentile(99) / 1000.0));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept-Encoding", "gzip")
+                .GET().build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private HttpRequest put(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    interface RequestFactory {
+        HttpRequest create(Random random);
+    }
+
+    static final class Operation {
+        final String name;
+        final int weight;
+        final RequestFactory factory;
+        LatencyHistogram latency = new LatencyHistogram();
+        LatencyHistogram serviceTime = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+
+        Operation(String name, int weight, RequestFactory factory) {
+            this.name = name;
+            this.weight = weight;
+            this.factory = factory;
+        }
+
+        void reset() {
+            latency = new LatencyHistogram();
+            serviceTime = new LatencyHistogram();
+            errors = new LongAdder();
+        }
+
+        void record(long intended, long sent, long end, boolean ok) {
+            latency.record((end - intended) / 1_000);
+            serviceTime.record((end - sent) / 1_000);
+            if (!ok) {
+                errors.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.foodhub.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Per-route concurrency limit that adapts to observed latency, with a short bounded wait queue.
+ *
+ * The limit follows the gradient between the route's long-term average latency and the latest
+ * sample: when requests start taking longer than usual the limit shrinks, and it grows back while
+ * latency is normal. Requests over the limit wait briefly in a bounded queue; beyond that they are
+ * shed at once with 503 and Retry-After, so a slow database cannot pile up requests without bound.
+ *
+ * Priority decides who gets the remaining room: HIGH requests may wait longest, LOW requests
+ * never queue and are shed once the route is three-quarters full.
+ */
+class AdmissionController implements HttpHandler {
+
+    enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    private static final boolean ENABLED = !"false".equals(System.getProperty("foodhub.admission.enabled"));
+    private static final int INITIAL_LIMIT = Integer.getInteger("foodhub.admission.initialLimit", 20);
+    private static final int MIN_LIMIT = Integer.getInteger("foodhub.admission.minLimit", 4);
+    private static final int MAX_LIMIT = Integer.getInteger("foodhub.admission.maxLimit", 200);
+    private static final int MAX_QUEUE = Integer.getInteger("foodhub.admission.maxQueue", 50);
+    private static final long MAX_WAIT_MILLIS = Integer.getInteger("foodhub.admission.maxWaitMillis", 50);
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("foodhub.admission.tolerance", "2.0"));
+
+    private static final byte[] SHED_BODY = "{\"error\":\"Server busy, please retry\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static final Map<String, AdmissionController> controllers = new ConcurrentHashMap<>();
+
+    private final String route;
+    private final HttpHandler delegate;
+    private final Function<HttpExchange, Priority> priorities;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit = INITIAL_LIMIT;
+    private double longLatencyMicros;
+    private int inFlight;
+    private int waiting;
+
+    private final LongAdder admitted = new LongAdder();
+    private final Map<Priority, LongAdder> shed = new EnumMap<>(Priority.class);
+
+    private AdmissionController(String route, HttpHandler delegate, Function<HttpExchange, Priority> priorities) {
+        this.route = route;
+        this.delegate = delegate;
+        this.priorities = priorities;
+        for (Priority priority : Priority.values()) {
+            shed.put(priority, new LongAdder());
+        }
+    }
+
+    // The handler itself when admission control is switched off (-Dfoodhub.admission.enabled=false)
+    static HttpHandler wrap(String route, HttpHandler delegate, Function<HttpExchange, Priority> priorities) {
+        if (!ENABLED) {
+            return delegate;
+        }
+        AdmissionController controller = new AdmissionController(route, delegate, priorities);
+        controllers.put(route, controller);
+        return controller;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        Priority priority = priorities.apply(exchange);
+        if (!acquire(priority)) {
+            shed.get(priority).increment();
+            reject(exchange);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            delegate.handle(exchange);
+        } finally {
+            release((System.nanoTime() - start) / 1_000);
+        }
+    }
+
+    private boolean acquire(Priority priority) {
+        lock.lock();
+        try {
+            if (hasRoom(priority)) {
+                inFlight++;
+                admitted.increment();
+                return true;
+            }
+            if (priority == Priority.LOW || waiting >= MAX_QUEUE) {
+                return false;
+            }
+
+            long remaining = TimeUnit.MILLISECONDS.toNanos(priority == Priority.HIGH ? MAX_WAIT_MILLIS * 4 : MAX_WAIT_MILLIS);
+            waiting++;
+            try {
+                while (!hasRoom(priority)) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                inFlight++;
+                admitted.increment();
+                return true;
+            } finally {
+                waiting--;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasRoom(Priority priority) {
+        double available = priority == Priority.LOW ? limit * 0.75 : limit;
+        return inFlight < Math.max(1, (int) available);
+    }
+
+    private void release(long latencyMicros) {
+        lock.lock();
+        try {
+            inFlight--;
+            update(Math.max(1, latencyMicros));
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Gradient limit: shrink in proportion to how far the sample exceeds the (tolerated) long-term
+    // latency, always leave sqrt(limit) headroom for growth, and smooth the result.
+    private void update(long sampleMicros) {
+        if (longLatencyMicros == 0) {
+            longLatencyMicros = sampleMicros;
+        } else {
+            longLatencyMicros += (sampleMicros - longLatencyMicros) / 100.0;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatencyMicros / sampleMicros));
+        if (gradient >= 1.0 && inFlight < limit / 2) {
+            return; // latency is fine but the route is mostly idle, so there is nothing to learn
+        }
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(MIN_LIMIT, Math.min(MAX_LIMIT, limit * 0.8 + target * 0.2));
+    }
+
+    private static void reject(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        exchange.sendResponseHeaders(503, SHED_BODY.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(SHED_BODY);
+        }
+    }
+
+    static Map<String, Object> snapshot() {
+        Map<String, Object> routes = new LinkedHashMap<>();
+        controllers.keySet().stream().sorted().forEach(route -> routes.put(route, controllers.get(route).stats()));
+        return routes;
+    }
+
+    private Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("limit", Math.round(limit * 10) / 10.0);
+            stats.put("inFlight", inFlight);
+            stats.put("waiting", waiting);
+            stats.put("latencyMillis", Math.round(longLatencyMicros / 100.0) / 10.0);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("admitted", admitted.sum());
+        Map<String, Long> shedCounts = new LinkedHashMap<>();
+        for (Priority priority : Priority.values()) {
+            shedCounts.put(priority.name().toLowerCase(), shed.get(priority).sum());
+        }
+        stats.put("shed", shedCounts);
+        return stats;
+    }
+
+    static void writePrometheus(StringBuilder out) {
+        out.append("# HELP foodhub_admission_limit Current adaptive concurrency limit.\n");
+        out.append("# TYPE foodhub_admission_limit gauge\n");
+        controllers.keySet().stream().sorted().forEach(route -> {
+            AdmissionController controller = controllers.get(route);
+            controller.lock.lock();
+            try {
+                out.append("foodhub_admission_limit{route=\"").append(route).append("\"} ")
+                        .append(controller.limit).append('\n');
+            } finally {
+                controller.lock.unlock();
+            }
+        });
+        out.append("# HELP foodhub_admission_shed_total Requests rejected by admission control.\n");
+        out.append("# TYPE foodhub_admission_shed_total counter\n");
+        controllers.keySet().stream().sorted().forEach(route -> {
+            for (Map.Entry<Priority, LongAdder> entry : controllers.get(route).shed.entrySet()) {
+                out.append("foodhub_admission_shed_total{route=\"").append(route)
+                        .append("\",priority=\"").append(entry.getKey().name().toLowerCase()).append("\"} ")
+                        .append(entry.getValue().sum()).append('\n');
+            }
+        });
+    }
+}
@@ -0,0 +1,189 @@
+package com.foodhub.api;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the response to each Idempotency-Key so a retried POST gets the original answer
+ * instead of creating a second order or customer.
+ *
+ * Entries are bounded in number and expire after a TTL. A retry that arrives while the first
+ * attempt is still running waits for it. Only successful responses are remembered; after a
+ * failure (including a 503 from a full order queue) the retry runs again.
+ */
+class IdempotencyStore {
+
+    static final class StoredResponse {
+        final int status;
+        final Object body;
+        final Map<String, String> headers;
+
+        StoredResponse(int status, Object body) {
+            this(status, body, Collections.emptyMap());
+        }
+
+        StoredResponse(int status, Object body, Map<String, String> headers) {
+            this.status = status;
+            this.body = body;
+            this.headers = headers;
+        }
+    }
+
+    static final class Outcome {
+        final StoredResponse response;
+        final boolean replayed;
+
+        Outcome(StoredResponse response, boolean replayed) {
+            this.response = response;
+            this.replayed = replayed;
+        }
+    }
+
+    // The key was used before with a different request body
+    static final class KeyReuseException extends Exception {
+        KeyReuseException() {
+            super("Idempotency-Key was already used with a different request body");
+        }
+    }
+
+    private static final class Entry {
+        final byte[] bodyHash;
+        final long expiresAt;
+        final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        Entry(byte[] bodyHash, long expiresAt) {
+            this.bodyHash = bodyHash;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean expired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long waitMillis;
+    private final Map<String, Entry> entries;
+
+    IdempotencyStore(int maxEntries, long ttl, TimeUnit unit, long waitMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.waitMillis = waitMillis;
+        this.entries = new LinkedHashMap<>();
+    }
+
+    static IdempotencyStore fromSystemProperties() {
+        return new IdempotencyStore(
+                Integer.getInteger("foodhub.idempotency.maxEntries", 100_000),
+                Integer.getInteger("foodhub.idempotency.ttlSeconds", 3_600), TimeUnit.SECONDS,
+                Integer.getInteger("foodhub.idempotency.waitMillis", 30_000));
+    }
+
+    // Run the action once per (scope, key); later calls with the same body get the stored response.
+    // TimeoutException if an earlier attempt with this key is still running after the wait limit.
+    Outcome execute(String scope, String key, String body, Supplier<StoredResponse> action)
+            throws KeyReuseException, TimeoutException, InterruptedException {
+        String id = scope + ' ' + key;
+        byte[] hash = sha256(body);
+        while (true) {
+            long now = System.nanoTime();
+            Entry mine = new Entry(hash, now + ttlNanos);
+            Entry existing;
+            synchronized (entries) {
+                purgeExpired(now);
+                existing = entries.get(id);
+                if (existing != null && existing.expired(now) && existing.response.isDone()) {
+                    existing = null;
+                }
+                if (existing == null) {
+                    entries.remove(id); // re-insert at the back so expiry order stays intact
+                    entries.put(id, mine);
+                    evictOverflow();
+                }
+            }
+
+            if (existing == null) {
+                StoredResponse response;
+                try {
+                    response = action.get();
+                } catch (Throwable e) {
+                    // Errors too: waiters must never be left on a future nobody will complete
+                    synchronized (entries) {
+                        entries.remove(id, mine);
+                    }
+                    mine.response.completeExceptionally(e);
+                    throw e;
+                }
+                if (response.status < 200 || response.status >= 300) {
+                    forget(id, mine);
+                } else {
+                    mine.response.complete(response);
+                }
+                return new Outcome(response, false);
+            }
+
+            if (!Arrays.equals(existing.bodyHash, hash)) {
+                throw new KeyReuseException();
+            }
+            try {
+                StoredResponse response = existing.response.get(waitMillis, TimeUnit.MILLISECONDS);
+                if (response != null) {
+                    return new Outcome(response, true);
+                }
+            } catch (ExecutionException e) {
+                // The first attempt threw; it was forgotten like any other failure
+            }
+            // The first attempt failed and was forgotten; take over
+        }
+    }
+
+    private void forget(String id, Entry entry) {
+        synchronized (entries) {
+            entries.remove(id, entry);
+        }
+        entry.response.complete(null);
+    }
+
+    // Oldest completed entries go first; one still running is skipped, since dropping it would let
+    // a retry run the action a second time. Running entries are bounded by the request threads.
+    private void evictOverflow() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            if (it.next().response.isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    // Entries are in insertion order and share one TTL, so expired ones are at the front
+    private void purgeExpired(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (!entry.expired(now) || !entry.response.isDone()) {
+                return;
+            }
+            it.remove();
+        }
+    }
+
+    private static byte[] sha256(String body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
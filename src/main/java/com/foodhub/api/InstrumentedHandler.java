@@ -0,0 +1,70 @@
+package com.foodhub.api;
+
+import com.foodhub.metrics.MetricsRegistry;
+import com.foodhub.metrics.RouteMetrics;
+import com.foodhub.util.AccessLog;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Wraps a handler to time it and count response bytes for the access log and route metrics
+class InstrumentedHandler implements HttpHandler {
+
+    // Exchange attribute holding the route template, for stats kept further down the handler
+    static final String ROUTE_ATTRIBUTE = "foodhub.route";
+
+    private final String route;
+    private final HttpHandler delegate;
+    private final RouteMetrics metrics;
+
+    InstrumentedHandler(String route, HttpHandler delegate) {
+        this.route = route;
+        this.delegate = delegate;
+        this.metrics = MetricsRegistry.route(route);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        exchange.setAttribute(ROUTE_ATTRIBUTE, route);
+        CountingOutputStream body = new CountingOutputStream(exchange.getResponseBody());
+        exchange.setStreams(null, body);
+        metrics.requestStarted();
+        try {
+            delegate.handle(exchange);
+        } finally {
+            long micros = (System.nanoTime() - start) / 1_000;
+            int status = exchange.getResponseCode();
+            if (status < 0) {
+                status = 500; // handler failed before sending anything
+            }
+            metrics.requestFinished(status, body.count, micros);
+            AccessLog.record(exchange.getRequestMethod(), exchange.getRequestURI().getRawPath(),
+                    status, body.count, micros);
+        }
+    }
+
+    // Counts bytes as they go to the wire (after any compression)
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.foodhub.api;
+
+import com.foodhub.model.Order;
+import com.foodhub.model.OrderItem;
+import com.google.gson.Gson;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+// Order placement request body: a new PENDING order and its items
+public class OrderRequest {
+
+    private final Order order;
+    private final List<OrderItem> items;
+
+    private OrderRequest(Order order, List<OrderItem> items) {
+        this.order = order;
+        this.items = items;
+    }
+
+    public Order getOrder() { return order; }
+    public List<OrderItem> getItems() { return items; }
+
+    public static OrderRequest parse(Gson gson, String body) {
+        Map<String, Object> orderData = gson.fromJson(body, Map.class);
+
+        // Create order
+        Order order = new Order();
+        order.setCustomerId(((Double) orderData.get("customerId")).intValue());
+        order.setOrderDate(new Date());
+        order.setTotalAmount(
+                BigDecimal.valueOf(((Number) orderData.get("totalAmount")).doubleValue())
+        );
+        order.setStatus("PENDING");
+        order.setDeliveryAddress((String) orderData.get("deliveryAddress"));
+
+        // Add order items
+        List<Map<String, Object>> items = (List<Map<String, Object>>) orderData.get("items");
+        if (items == null) {
+            items = new ArrayList<>();
+        }
+        List<OrderItem> orderItems = new ArrayList<>(items.size());
+        for (Map<String, Object> item : items) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setMenuItemId(((Double) item.get("menuItemId")).intValue());
+            orderItem.setQuantity(((Double) item.get("quantity")).intValue());
+            orderItem.setUnitPrice(
+                    BigDecimal.valueOf(((Number) item.get("unitPrice")).doubleValue())
+            );
+            orderItem.setSubtotal(
+                    BigDecimal.valueOf(((Number) item.get("subtotal")).doubleValue())
+            );
+            orderItems.add(orderItem);
+        }
+        return new OrderRequest(order, orderItems);
+    }
+}
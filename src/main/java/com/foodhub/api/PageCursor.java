@@ -0,0 +1,34 @@
+package com.foodhub.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque keyset cursor for list endpoints: the sort key and id of the last row on a page
+final class PageCursor {
+
+    private final long sortKey;
+    private final int id;
+
+    PageCursor(long sortKey, int id) {
+        this.sortKey = sortKey;
+        this.id = id;
+    }
+
+    long getSortKey() { return sortKey; }
+    int getId() { return id; }
+
+    String encode() {
+        String raw = sortKey + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Throws IllegalArgumentException for anything that was not produced by encode()
+    static PageCursor decode(String cursor) {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+        int colon = raw.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new PageCursor(Long.parseLong(raw.substring(0, colon)), Integer.parseInt(raw.substring(colon + 1)));
+    }
+}
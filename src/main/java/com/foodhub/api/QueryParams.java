@@ -0,0 +1,104 @@
+package com.foodhub.api;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Request parameters: path variables captured by the Router, then the query string.
+ *
+ * Nothing is parsed up front. Each lookup scans the raw query string in place, and only the
+ * value that is asked for is copied out (and URL-decoded only if it contains escapes). For a
+ * repeated name the last value wins.
+ */
+final class QueryParams {
+
+    private static final String[] NONE = new String[0];
+
+    // Path variables for the request being dispatched on this thread. Exchange attributes cannot
+    // be used for this: the JDK server shares them across all exchanges of a context.
+    private static final ThreadLocal<QueryParams> bound = new ThreadLocal<>();
+
+    private final HttpExchange exchange;
+    private final String query;
+    private final String[] pathNames;
+    private final String[] pathValues;
+
+    private QueryParams(HttpExchange exchange, String[] pathNames, String[] pathValues) {
+        this.exchange = exchange;
+        String query = exchange.getRequestURI().getRawQuery();
+        this.query = query == null ? "" : query;
+        this.pathNames = pathNames;
+        this.pathValues = pathValues;
+    }
+
+    // Parameters for this exchange, including any path variables the Router matched
+    static QueryParams of(HttpExchange exchange) {
+        QueryParams params = bound.get();
+        if (params != null && params.exchange == exchange) {
+            return params;
+        }
+        return new QueryParams(exchange, NONE, NONE);
+    }
+
+    // Called by the Router around the handler; always paired with unbind()
+    static void bind(HttpExchange exchange, String[] pathNames, String[] pathValues) {
+        bound.set(new QueryParams(exchange, pathNames, pathValues));
+    }
+
+    static void unbind() {
+        bound.remove();
+    }
+
+    // Decoded value, "" for a name without '=', or null when absent
+    String get(String name) {
+        for (int i = 0; i < pathNames.length; i++) {
+            if (pathNames[i].equals(name)) {
+                return pathValues[i];
+            }
+        }
+
+        int valueStart = -1;
+        int valueEnd = -1;
+        int length = query.length();
+        int start = 0;
+        while (start <= length) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            int nameEnd = start + name.length();
+            if (nameEnd <= end && query.regionMatches(start, name, 0, name.length())
+                    && (nameEnd == end || query.charAt(nameEnd) == '=')) {
+                valueStart = nameEnd == end ? end : nameEnd + 1;
+                valueEnd = end;
+            }
+            start = end + 1;
+        }
+        if (valueStart < 0) {
+            return null;
+        }
+        return decode(query, valueStart, valueEnd);
+    }
+
+    boolean has(String name) {
+        return get(name) != null;
+    }
+
+    // Integer value, or the default when absent; NumberFormatException when malformed
+    int getInt(String name, int defaultValue) {
+        String value = get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static String decode(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '%' || c == '+') {
+                return URLDecoder.decode(s.substring(start, end), StandardCharsets.UTF_8);
+            }
+        }
+        return s.substring(start, end);
+    }
+}
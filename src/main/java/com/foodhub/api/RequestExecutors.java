@@ -0,0 +1,95 @@
+package com.foodhub.api;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the executor that runs HTTP handlers.
+ *
+ * Configured with system properties:
+ *   foodhub.executor          virtual (default) | pool
+ *   foodhub.executor.threads  platform pool size (default 32)
+ *   foodhub.executor.queue    platform pool queue capacity (default 512)
+ *
+ * Virtual threads need Java 21+. On older runtimes the virtual mode falls back
+ * to the bounded platform pool. Database concurrency is bounded separately by
+ * HibernateUtil.openSession(), so either mode is safe with the blocking DAOs.
+ */
+public final class RequestExecutors {
+
+    public enum Mode {
+        VIRTUAL, POOL;
+
+        public static Mode parse(String value) {
+            if (value == null || value.isBlank()) {
+                return VIRTUAL;
+            }
+            return Mode.valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    private RequestExecutors() {
+    }
+
+    public static Mode configuredMode() {
+        return Mode.parse(System.getProperty("foodhub.executor"));
+    }
+
+    public static ExecutorService create(Mode mode) {
+        if (mode == Mode.VIRTUAL) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+            if (virtual != null) {
+                return virtual;
+            }
+            System.err.println("Virtual threads are not available on Java "
+                    + Runtime.version().feature() + ", falling back to a platform thread pool");
+        }
+        return newBoundedPool(
+                Integer.getInteger("foodhub.executor.threads", 32),
+                Integer.getInteger("foodhub.executor.queue", 512));
+    }
+
+    // Fixed pool with a bounded queue. When the queue is full the dispatcher thread
+    // runs the request itself, which stops it accepting more work until it catches up.
+    public static ExecutorService newBoundedPool(int threads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory("foodhub-http-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.prestartAllCoreThreads();
+        return executor;
+    }
+
+    // Looked up reflectively so the project still compiles and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.foodhub.api;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writer that UTF-8 encodes straight into a pooled byte buffer and from there into the
+ * response body, so a JSON response is never held as a String or a full byte[].
+ *
+ * Headers are sent lazily: a body that fits in one buffer goes out with a Content-Length,
+ * anything larger switches to chunked transfer encoding the first time the buffer fills.
+ * When the client accepts gzip or deflate and the body reaches the compression threshold,
+ * the committed stream is compressed on the way out.
+ */
+final class ResponseBodyWriter extends Writer {
+
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    // Buffers are pooled rather than held in ThreadLocals: with virtual threads every
+    // request runs on a fresh thread, so a ThreadLocal would never be reused.
+    private static final int MAX_POOLED_BUFFERS = 256;
+    private static final ConcurrentLinkedQueue<byte[]> bufferPool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    private final HttpExchange exchange;
+    private final int statusCode;
+    private final ResponseCompression.Encoding encoding;
+
+    private byte[] buffer;
+    private int count;
+    private OutputStream out;
+    private char highSurrogate;
+    private long bytesWritten;
+
+    ResponseBodyWriter(HttpExchange exchange, int statusCode) {
+        this.exchange = exchange;
+        this.statusCode = statusCode;
+        this.encoding = ResponseCompression.negotiate(exchange);
+        this.buffer = acquireBuffer();
+    }
+
+    // Total body bytes handed to the exchange so far (final after close)
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int off, int len) throws IOException {
+        for (int i = off, end = off + len; i < end; i++) {
+            encode(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off, end = off + len; i < end; i++) {
+            encode(str.charAt(i));
+        }
+    }
+
+    private void encode(char c) throws IOException {
+        if (count > BUFFER_SIZE - 4) {
+            drain();
+        }
+        byte[] buf = buffer;
+        if (highSurrogate != 0 && !Character.isLowSurrogate(c)) {
+            highSurrogate = 0;
+            buf[count++] = '?'; // unpaired surrogate
+        }
+        if (c < 0x80) {
+            buf[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buf[count++] = (byte) (0xC0 | (c >> 6));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c) && highSurrogate != 0) {
+            int codePoint = Character.toCodePoint(highSurrogate, c);
+            highSurrogate = 0;
+            buf[count++] = (byte) (0xF0 | (codePoint >> 18));
+            buf[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buf[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buf[count++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            if (Character.isSurrogate(c)) {
+                c = '?'; // unpaired surrogate
+            }
+            buf[count++] = (byte) (0xE0 | (c >> 12));
+            buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    // Buffer is full: commit to chunked encoding and pass the bytes on
+    private void drain() throws IOException {
+        if (out == null) {
+            commitChunked();
+        }
+        out.write(buffer, 0, count);
+        bytesWritten += count;
+        count = 0;
+    }
+
+    // Only pushes what has already been committed; an uncommitted small body stays
+    // buffered so it can still be sent with a Content-Length.
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            if (count > 0) {
+                drain();
+            }
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (out == null) {
+                if (encoding != null && count >= ResponseCompression.minBytes()) {
+                    commitChunked();
+                } else {
+                    if (encoding != null) {
+                        ResponseCompression.recordSkipped(routeOf(exchange));
+                    }
+                    exchange.sendResponseHeaders(statusCode, count == 0 ? -1 : count);
+                    out = exchange.getResponseBody();
+                }
+            }
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                bytesWritten += count;
+            }
+            out.close();
+        } finally {
+            releaseBuffer(buffer);
+            buffer = null;
+        }
+    }
+
+    private void commitChunked() throws IOException {
+        if (encoding == null) {
+            exchange.sendResponseHeaders(statusCode, 0);
+            out = exchange.getResponseBody();
+        } else {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding.token());
+            exchange.sendResponseHeaders(statusCode, 0);
+            out = ResponseCompression.compress(exchange.getResponseBody(), encoding, routeOf(exchange));
+        }
+    }
+
+    // The route template ("/api/orders/{id}"); every route shares the one "/" context
+    private static String routeOf(HttpExchange exchange) {
+        Object route = exchange.getAttribute(InstrumentedHandler.ROUTE_ATTRIBUTE);
+        return route != null ? (String) route : exchange.getHttpContext().getPath();
+    }
+
+    // Give up on a response after a serialization failure. Returns true if nothing was sent
+    // yet, so the caller can still send an error response on this exchange.
+    boolean abort() {
+        if (buffer != null) {
+            releaseBuffer(buffer);
+            buffer = null;
+        }
+        if (out == null) {
+            return true;
+        }
+        // Headers are already out, so the only signal left is a truncated body
+        if (out instanceof ResponseCompression.CompressingOutputStream) {
+            ((ResponseCompression.CompressingOutputStream) out).discard();
+        }
+        exchange.close();
+        return false;
+    }
+
+    private static byte[] acquireBuffer() {
+        byte[] buffer = bufferPool.poll();
+        if (buffer == null) {
+            return new byte[BUFFER_SIZE];
+        }
+        pooledBuffers.decrementAndGet();
+        return buffer;
+    }
+
+    private static void releaseBuffer(byte[] buffer) {
+        if (pooledBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            bufferPool.offer(buffer);
+        } else {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+}
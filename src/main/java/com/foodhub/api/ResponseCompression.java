@@ -0,0 +1,343 @@
+package com.foodhub.api;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Accept-Encoding negotiation and pooled gzip/deflate output for JSON responses.
+ *
+ * Configured with system properties:
+ *   foodhub.compression           true (default) | false
+ *   foodhub.compression.minBytes  bodies smaller than this are sent as-is (default 1024)
+ *   foodhub.compression.level     deflate level 1-9 (default 4, favours CPU over ratio)
+ */
+public final class ResponseCompression {
+
+    public enum Encoding {
+        GZIP("gzip"), DEFLATE("deflate");
+
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        public String token() {
+            return token;
+        }
+    }
+
+    private static final boolean ENABLED =
+            !"false".equalsIgnoreCase(System.getProperty("foodhub.compression", "true"));
+    private static final int MIN_BYTES = Integer.getInteger("foodhub.compression.minBytes", 1024);
+    private static final int LEVEL = Integer.getInteger("foodhub.compression.level", 4);
+
+    private static final int MAX_POOLED_DEFLATERS = 64;
+    private static final DeflaterPool gzipPool = new DeflaterPool(true);
+    private static final DeflaterPool deflatePool = new DeflaterPool(false);
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = threads.isCurrentThreadCpuTimeSupported();
+
+    private static final Map<String, RouteStats> statsByRoute = new ConcurrentHashMap<>();
+
+    private ResponseCompression() {
+    }
+
+    static int minBytes() {
+        return MIN_BYTES;
+    }
+
+    // Pick an encoding from the request's Accept-Encoding header, or null for identity.
+    // Also marks the response as varying on Accept-Encoding.
+    static Encoding negotiate(HttpExchange exchange) {
+        if (!ENABLED) {
+            return null;
+        }
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        return negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        // -1 = not named; a named coding's q-value wins over "*", even q=0
+        double gzipQ = -1;
+        double deflateQ = -1;
+        double wildcardQ = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            double q = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                gzipQ = q;
+            } else if (name.equalsIgnoreCase("deflate")) {
+                deflateQ = q;
+            } else if (name.equals("*")) {
+                wildcardQ = q;
+            }
+        }
+        if (gzipQ < 0) {
+            gzipQ = wildcardQ;
+        }
+        if (deflateQ < 0) {
+            deflateQ = wildcardQ;
+        }
+        if (gzipQ <= 0 && deflateQ <= 0) {
+            return null;
+        }
+        // gzip wins ties: it is what every client actually implements correctly
+        return gzipQ >= deflateQ ? Encoding.GZIP : Encoding.DEFLATE;
+    }
+
+    // Wraps the response body; closing the returned stream finishes the encoding
+    static CompressingOutputStream compress(OutputStream out, Encoding encoding, String route) throws IOException {
+        DeflaterPool pool = encoding == Encoding.GZIP ? gzipPool : deflatePool;
+        return new CompressingOutputStream(out, encoding, pool, statsFor(route));
+    }
+
+    // Count a response that was eligible for compression but too small to bother
+    static void recordSkipped(String route) {
+        statsFor(route).skipped.increment();
+    }
+
+    private static RouteStats statsFor(String route) {
+        return statsByRoute.computeIfAbsent(route, r -> new RouteStats());
+    }
+
+    // Per-route ratio and CPU cost, keyed by context path
+    public static Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        statsByRoute.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue().toMap()));
+        return result;
+    }
+
+    // -1 where thread CPU time is not available (virtual threads report -1). Wall time is not
+    // substituted: it would be exported as CPU seconds.
+    private static long cpuNanos() {
+        return CPU_TIME_SUPPORTED ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    static final class RouteStats {
+        final LongAdder compressed = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder cpuNanos = new LongAdder();
+        final LongAdder cpuMeasured = new LongAdder(); // responses whose CPU time is in cpuNanos
+
+        Map<String, Object> toMap() {
+            long in = bytesIn.sum();
+            long out = bytesOut.sum();
+            long responses = compressed.sum();
+            long measured = cpuMeasured.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("compressedResponses", responses);
+            map.put("skippedBelowThreshold", skipped.sum());
+            map.put("bytesIn", in);
+            map.put("bytesOut", out);
+            map.put("ratio", out == 0 ? 0.0 : Math.round(in * 100.0 / out) / 100.0);
+            // Left out entirely when no response on this route could be timed
+            if (measured > 0) {
+                map.put("cpuMillis", cpuNanos.sum() / 1_000_000.0);
+                map.put("cpuMicrosPerResponse", cpuNanos.sum() / 1_000 / measured);
+            }
+            return map;
+        }
+    }
+
+    private static final class PooledDeflater {
+        final Deflater deflater;
+        final byte[] output = new byte[8 * 1024];
+
+        PooledDeflater(boolean nowrap) {
+            deflater = new Deflater(LEVEL, nowrap);
+        }
+    }
+
+    private static final class DeflaterPool {
+        private final boolean nowrap;
+        private final ConcurrentLinkedQueue<PooledDeflater> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        DeflaterPool(boolean nowrap) {
+            this.nowrap = nowrap;
+        }
+
+        PooledDeflater acquire() {
+            PooledDeflater pooled = idle.poll();
+            if (pooled == null) {
+                return new PooledDeflater(nowrap);
+            }
+            idleCount.decrementAndGet();
+            return pooled;
+        }
+
+        void release(PooledDeflater pooled) {
+            pooled.deflater.reset();
+            if (idleCount.incrementAndGet() <= MAX_POOLED_DEFLATERS) {
+                idle.offer(pooled);
+            } else {
+                idleCount.decrementAndGet();
+                pooled.deflater.end();
+            }
+        }
+    }
+
+    // gzip is written as a raw deflate stream with our own header and CRC32 trailer,
+    // because GZIPOutputStream always allocates a fresh Deflater.
+    static final class CompressingOutputStream extends OutputStream {
+        private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+        private final OutputStream out;
+        private final Encoding encoding;
+        private final DeflaterPool pool;
+        private final RouteStats stats;
+        private final CRC32 crc;
+        private PooledDeflater pooled;
+        private long bytesIn;
+        private long bytesOut;
+        private long cpuNanos;
+        private boolean cpuUnavailable;
+
+        CompressingOutputStream(OutputStream out, Encoding encoding, DeflaterPool pool, RouteStats stats) throws IOException {
+            this.out = out;
+            this.encoding = encoding;
+            this.pool = pool;
+            this.stats = stats;
+            this.pooled = pool.acquire();
+            this.crc = encoding == Encoding.GZIP ? new CRC32() : null;
+            if (crc != null) {
+                out.write(GZIP_HEADER);
+                bytesOut += GZIP_HEADER.length;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            long start = cpuNanos();
+            if (crc != null) {
+                crc.update(b, off, len);
+            }
+            Deflater deflater = pooled.deflater;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                writeDeflated(deflater.deflate(pooled.output, 0, pooled.output.length, Deflater.NO_FLUSH));
+            }
+            bytesIn += len;
+            addCpu(start);
+        }
+
+        private void addCpu(long start) {
+            long end = start < 0 ? -1 : cpuNanos();
+            if (end < 0) {
+                cpuUnavailable = true;
+            } else {
+                cpuNanos += end - start;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = cpuNanos();
+            Deflater deflater = pooled.deflater;
+            int n;
+            do {
+                n = deflater.deflate(pooled.output, 0, pooled.output.length, Deflater.SYNC_FLUSH);
+                writeDeflated(n);
+            } while (n == pooled.output.length);
+            addCpu(start);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (pooled == null) {
+                return;
+            }
+            try {
+                long start = cpuNanos();
+                Deflater deflater = pooled.deflater;
+                deflater.finish();
+                while (!deflater.finished()) {
+                    writeDeflated(deflater.deflate(pooled.output));
+                }
+                if (crc != null) {
+                    writeTrailer();
+                }
+                addCpu(start);
+
+                stats.compressed.increment();
+                stats.bytesIn.add(bytesIn);
+                stats.bytesOut.add(bytesOut);
+                if (!cpuUnavailable) {
+                    stats.cpuNanos.add(cpuNanos);
+                    stats.cpuMeasured.increment();
+                }
+            } finally {
+                pool.release(pooled);
+                pooled = null;
+                out.close();
+            }
+        }
+
+        // Hand the deflater back without finishing the stream (response is being abandoned)
+        void discard() {
+            if (pooled != null) {
+                pool.release(pooled);
+                pooled = null;
+            }
+        }
+
+        private void writeDeflated(int length) throws IOException {
+            if (length > 0) {
+                out.write(pooled.output, 0, length);
+                bytesOut += length;
+            }
+        }
+
+        private void writeTrailer() throws IOException {
+            long crcValue = crc.getValue();
+            long size = bytesIn;
+            byte[] trailer = {
+                    (byte) crcValue, (byte) (crcValue >> 8), (byte) (crcValue >> 16), (byte) (crcValue >> 24),
+                    (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)
+            };
+            out.write(trailer);
+            bytesOut += trailer.length;
+        }
+    }
+}
@@ -1,14 +1,29 @@
 package com.foodhub.api;
 
+import com.foodhub.cache.MenuSnapshotCache;
 import com.foodhub.dao.CustomerDAO;
+import com.foodhub.dao.FieldSet;
 import com.foodhub.dao.MenuItemDAO;
 import com.foodhub.dao.OrderDAO;
+import com.foodhub.events.OrderEvent;
+import com.foodhub.events.OrderEventBus;
+import com.foodhub.http.NioHttpServer;
+import com.foodhub.ingest.OrderIngestionQueue;
+import com.foodhub.metrics.CacheStatistics;
+import com.foodhub.metrics.MetricsRegistry;
 import com.foodhub.model.Customer;
 import com.foodhub.model.MenuItem;
 import com.foodhub.model.Order;
+import com.foodhub.model.OrderDetail;
 import com.foodhub.model.OrderItem;
+import com.foodhub.model.OrderStatus;
+import com.foodhub.model.OrderStatusChange;
+import com.foodhub.reports.SalesAggregates;
+import com.foodhub.util.AccessLog;
+import com.foodhub.util.HibernateUtil;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -17,72 +32,217 @@ import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.math.BigDecimal;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class RestServer {
 
-    private static final Gson gson = new GsonBuilder()
-            .setDateFormat("yyyy-MM-dd")
-            .create();
+    private static final Gson gson = createGson();
 
     private static final MenuItemDAO menuItemDAO = new MenuItemDAO();
     private static final CustomerDAO customerDAO = new CustomerDAO();
     private static final OrderDAO orderDAO = new OrderDAO();
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BATCH_IDS = 100;
+
+    // Null unless -Dfoodhub.orders.ingestion=queued
+    private static final OrderIngestionQueue orderIngestion =
+            "queued".equals(System.getProperty("foodhub.orders.ingestion"))
+                    ? OrderIngestionQueue.fromSystemProperties(orderDAO) : null;
+    private static final IdempotencyStore idempotency = IdempotencyStore.fromSystemProperties();
+    private static volatile HttpServer httpServer;
+    private static final MenuSnapshotCache menuSnapshot = new MenuSnapshotCache(menuItemDAO, gson);
+    private static final SalesAggregates salesAggregates = SalesAggregates.fromSystemProperties(orderDAO, menuItemDAO);
+
+    // Gson configuration shared by every endpoint (and by the benchmarks)
+    public static Gson createGson() {
+        return new GsonBuilder()
+                .setDateFormat("yyyy-MM-dd")
+                .create();
+    }
+
     public static void main(String[] args) throws IOException {
-        // Create server
-        HttpServer server = HttpServer.create(new InetSocketAddress("0.0.0.0", 8080), 0);
+        start(Integer.getInteger("foodhub.port", 8080));
+    }
+
+    // Create, configure and start the server (also used by the load-test harness)
+    public static HttpServer start(int port) throws IOException {
+        // Create server: the JDK engine by default, or the NIO engine with -Dfoodhub.http.engine=nio
+        InetSocketAddress address = new InetSocketAddress("0.0.0.0", port);
+        int backlog = Integer.getInteger("foodhub.http.backlog", 1024);
+        boolean nio = "nio".equals(System.getProperty("foodhub.http.engine"));
+        HttpServer server = nio ? NioHttpServer.create(address, backlog) : HttpServer.create(address, backlog);
+        httpServer = server;
 
         System.out.println("===========================================");
         System.out.println("  FoodHub Backend Server Starting...");
         System.out.println("===========================================");
 
+        // Handlers block on Hibernate, so keep them off the single dispatcher thread
+        RequestExecutors.Mode mode = RequestExecutors.configuredMode();
+        ExecutorService executor = RequestExecutors.create(mode);
+
+        // One dispatcher for every route; paths match exactly, {name} segments become parameters
+        Router router = new Router(new InstrumentedHandler("(unmatched)", new Router.NotFoundHandler()));
+
         // Menu endpoints
-        server.createContext("/api/menu", new MenuHandler());
-        server.createContext("/api/menu/category", new MenuByCategoryHandler());
+        register(router, "/api/menu", new MenuHandler());
+        register(router, "/api/menu/category", new MenuByCategoryHandler());
 
         // Customer endpoints
-        server.createContext("/api/customers", new CustomerHandler());
-        server.createContext("/api/customer", new CustomerByIdHandler());
+        HttpHandler customerById = new CustomerByIdHandler();
+        register(router, "/api/customers", new CustomerHandler());
+        register(router, "/api/customer", customerById);
+        register(router, "GET", "/api/customers/{id}", customerById);
 
         // Order endpoints
-        server.createContext("/api/orders", new OrderHandler());
-        server.createContext("/api/order", new OrderByIdHandler());
-        server.createContext("/api/order/items", new OrderItemsHandler());
-        server.createContext("/api/order/status", new OrderStatusHandler());
+        HttpHandler orderById = new OrderByIdHandler();
+        HttpHandler orderItems = new OrderItemsHandler();
+        HttpHandler orderDetail = new OrderDetailHandler();
+        register(router, "/api/orders", new OrderHandler());
+        register(router, "/api/order", orderById);
+        register(router, "/api/order/items", orderItems);
+        register(router, "/api/order/status", new OrderStatusHandler());
+        register(router, "/api/orders/status", new BulkOrderStatusHandler());
+        register(router, "/api/order/detail", orderDetail);
+        register(router, "/api/orders/details", new OrderDetailsPageHandler());
+        registerUnthrottled(router, "/api/orders/events", new OrderEventsHandler(OrderEventsHandler.maxStreams(executor)));
+        register(router, "/api/orders/provisional", new ProvisionalOrderHandler());
+        register(router, "GET", "/api/orders/{id}", orderById);
+        register(router, "GET", "/api/orders/{orderId}/items", orderItems);
+        register(router, "GET", "/api/orders/{id}/detail", orderDetail);
+
+        // Reports
+        register(router, "/api/reports/sales", new SalesReportHandler());
 
         // Test endpoint
-        server.createContext("/api/test", new TestHandler());
+        registerUnthrottled(router, "/api/test", new TestHandler());
+        registerUnthrottled(router, "/api/stats/compression", new CompressionStatsHandler());
+        registerUnthrottled(router, "/api/metrics", new MetricsHandler());
 
-        server.setExecutor(null); // Default executor
+        server.createContext("/", router);
+
+        server.setExecutor(executor);
+
+        // Sales counters are rebuilt before the first request, then follow order events
+        boolean salesReady = salesAggregates.start();
         server.start();
 
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            OrderEventBus.closeAll();
+            server.stop(1);
+            if (orderIngestion != null) {
+                orderIngestion.shutdown(10, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+            AccessLog.shutdown();
+        }, "foodhub-shutdown"));
+
         System.out.println("✓ Server started successfully!");
-        System.out.println("✓ Listening on port: 8080");
-        System.out.println("✓ Access from browser: http://localhost:8080/api/test");
+        System.out.println("✓ Listening on port: " + port);
+        System.out.println("✓ HTTP engine: " + (nio ? "nio" : "jdk") + " (backlog " + backlog + ")");
+        System.out.println("✓ Request executor: " + mode.name().toLowerCase()
+                + " (" + executor.getClass().getSimpleName() + ")");
+        System.out.println("✓ Read replicas: " + HibernateUtil.replicaCount());
+        System.out.println("✓ Order ingestion: " + (orderIngestion != null ? "queued (write-behind)" : "synchronous"));
+        System.out.println("✓ Sales aggregates: " + (salesReady
+                ? "rebuilt in " + salesAggregates.snapshot().get("rebuildMillis") + " ms"
+                : "unavailable (rebuild failed)"));
+        System.out.println("✓ Access from browser: http://localhost:" + port + "/api/test");
         System.out.println("✓ Available endpoints:");
         System.out.println("  - GET  /api/menu");
+        System.out.println("  - GET  /api/menu?ids=1,2,3");
+        System.out.println("  - GET  /api/menu?fields=id,name,price  (also customers and orders lists)");
         System.out.println("  - GET  /api/menu/category?category=Burgers");
         System.out.println("  - GET  /api/customers");
+        System.out.println("  - GET  /api/customers?limit=50&cursor=...  (or ?stream=true)");
         System.out.println("  - POST /api/customers");
+        System.out.println("  - GET  /api/customer?ids=1,2,3");
+        System.out.println("  - GET  /api/customer?phone=0771234567");
+        System.out.println("  - GET  /api/customers/{id}");
         System.out.println("  - GET  /api/orders");
+        System.out.println("  - GET  /api/orders?limit=50&cursor=...  (or ?stream=true)");
         System.out.println("  - POST /api/orders");
+        System.out.println("  - GET  /api/orders/provisional?ref=...  (queued ingestion)");
+        System.out.println("  - GET  /api/order?ids=1,2,3");
+        System.out.println("  - GET  /api/orders/{id}  (also /items, /detail)");
         System.out.println("  - GET  /api/order/items?orderId=1");
+        System.out.println("  - PUT  /api/orders/status  {\"orderIds\": [1, 2], \"status\": \"READY\"}");
+        System.out.println("  - GET  /api/order/detail?id=1");
+        System.out.println("  - GET  /api/orders/details?limit=20&cursor=...");
+        System.out.println("  - GET  /api/orders/events  (SSE, ?customerId=1&status=READY,DELIVERED)");
+        System.out.println("  - GET  /api/reports/sales?from=2024-01-01&to=2024-01-31&status=DELIVERED&top=10");
+        System.out.println("  - GET  /api/metrics  (?format=prometheus)");
         System.out.println("===========================================");
+        return server;
     }
 
 
+    // Every route is instrumented for the access log and /api/metrics, under its path template
+    private static void register(Router router, String path, HttpHandler handler) {
+        register(router, Router.ANY, path, handler);
+    }
+
+    private static void register(Router router, String method, String path, HttpHandler handler) {
+        HttpHandler admitted = AdmissionController.wrap(path, handler, RestServer::priorityOf);
+        router.add(method, path, new InstrumentedHandler(path, admitted));
+    }
+
+    // Not admission-controlled: long-lived streams, and the endpoints needed to diagnose overload
+    private static void registerUnthrottled(Router router, String path, HttpHandler handler) {
+        router.add(Router.ANY, path, new InstrumentedHandler(path, handler));
+    }
+
+    // Placing orders and changing their status go first; full-table admin lists give way under load
+    private static AdmissionController.Priority priorityOf(HttpExchange exchange) {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        QueryParams params = QueryParams.of(exchange);
+
+        if ("POST".equals(method) && (path.equals("/api/orders") || path.equals("/api/customers"))) {
+            return AdmissionController.Priority.HIGH;
+        }
+        if ("PUT".equals(method) && path.endsWith("/status")) {
+            return AdmissionController.Priority.HIGH;
+        }
+        if ("GET".equals(method)) {
+            boolean fullList = (path.equals("/api/orders") || path.equals("/api/customers"))
+                    && (query == null || query.isEmpty() || "true".equals(params.get("stream"))
+                        || (params.has("fields") && !params.has("limit") && !params.has("cursor")
+                            && !params.has("customerId")));
+            if (fullList || path.equals("/api/orders/details")) {
+                return AdmissionController.Priority.LOW;
+            }
+        }
+        return AdmissionController.Priority.NORMAL;
+    }
+
     private static void addCORSHeaders(HttpExchange exchange) {
         Headers headers = exchange.getResponseHeaders();
         exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
         exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type, Authorization");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type, Authorization, Idempotency-Key");
         exchange.getResponseHeaders().set("Access-Control-Max-Age", "3600");
     }
 
@@ -92,22 +252,218 @@ public class RestServer {
     private static void sendJsonResponse(HttpExchange exchange, int statusCode, Object data) throws IOException {
         // Add CORS headers
         addCORSHeaders(exchange);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+
+        // Serialize straight into the response body; small bodies still get a Content-Length
+        ResponseBodyWriter body = new ResponseBodyWriter(exchange, statusCode);
+        JsonWriter writer = gson.newJsonWriter(body);
+        try {
+            gson.toJson(data, data == null ? Object.class : data.getClass(), writer);
+        } catch (RuntimeException e) {
+            body.abort();
+            throw e;
+        }
+        writer.close();
+    }
+
+
+//     Stream a JSON array straight to the response body as the source produces elements
 
-        String jsonResponse = gson.toJson(data);
+    private static <T> void sendJsonStream(HttpExchange exchange, Class<? super T> type,
+                                           Consumer<Consumer<T>> source) throws IOException {
+        addCORSHeaders(exchange);
         exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
 
-        byte[] responseBytes = jsonResponse.getBytes(StandardCharsets.UTF_8);
-        exchange.sendResponseHeaders(statusCode, responseBytes.length);
+        ResponseBodyWriter body = new ResponseBodyWriter(exchange, 200);
+        JsonWriter writer = gson.newJsonWriter(body);
+        try {
+            writer.beginArray();
+            source.accept(element -> gson.toJson(element, type, writer));
+            writer.endArray();
+        } catch (RuntimeException e) {
+            if (body.abort()) {
+                throw e; // nothing sent yet, let the handler report it
+            }
+            e.printStackTrace();
+            return;
+        }
+        writer.close();
+    }
+
+//     Send a pre-serialized menu snapshot, honouring If-None-Match and gzip
+
+    private static void sendMenuSnapshot(HttpExchange exchange, MenuSnapshotCache.Snapshot snapshot) throws IOException {
+        addCORSHeaders(exchange);
+
+        Headers headers = exchange.getResponseHeaders();
+        // Only a gzip copy is kept; deflate-only clients get the plain bytes
+        boolean gzip = ResponseCompression.negotiate(exchange) == ResponseCompression.Encoding.GZIP;
+        headers.set("ETag", gzip ? snapshot.getGzipEtag() : snapshot.getEtag());
+        headers.set("Vary", "Accept-Encoding");
+        headers.set("Cache-Control", "no-cache");
+
+        if (snapshot.matches(exchange.getRequestHeaders().getFirst("If-None-Match"), gzip)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+        } else {
+            byte[] body = snapshot.getJson();
+            headers.set("Content-Type", "application/json; charset=UTF-8");
+            if (gzip) {
+                body = snapshot.getGzip();
+                headers.set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+
+//     Paging parameters
+
+    // IllegalArgumentException("Invalid limit") when it is not a number
+    private static int parseLimit(QueryParams params) {
+        String limit = params.get("limit");
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(limit)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit");
+        }
+    }
+
+    // Null when no cursor was given (first page); IllegalArgumentException("Invalid cursor")
+    // when it is malformed
+    private static PageCursor parseCursor(QueryParams params) {
+        String cursor = params.get("cursor");
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
 
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(responseBytes);
+    // ?fields=a,b on a list endpoint, or null when absent. Returns null as well after answering
+    // 400 for a field the endpoint does not have, so check params.has("fields") first.
+    private static FieldSet parseFields(HttpExchange exchange, QueryParams params,
+                                        Function<String, FieldSet> parser) throws IOException {
+        try {
+            return parser.apply(params.get("fields"));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            sendJsonResponse(exchange, 400, error);
+            return null;
         }
+    }
 
-        // Log request for debugging
-        System.out.println("[" + new Date() + "] " +
-                exchange.getRequestMethod() + " " +
-                exchange.getRequestURI() + " → " +
-                statusCode);
+    private static Map<String, Object> page(List<?> items, PageCursor next) {
+        Map<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        page.put("nextCursor", next == null ? null : next.encode());
+        return page;
+    }
+
+//     Batch lookup for ?ids=1,2,3: found items in request order plus the IDs that do not exist
+
+    private static <T> void sendMultiGet(HttpExchange exchange, String ids,
+                                         Function<List<Integer>, List<T>> loader) throws IOException {
+        List<Integer> idList;
+        try {
+            idList = parseIds(ids);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            sendJsonResponse(exchange, 400, error);
+            return;
+        }
+
+        List<T> loaded = loader.apply(idList);
+        List<T> items = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i++) {
+            if (loaded.get(i) != null) {
+                items.add(loaded.get(i));
+            } else {
+                missing.add(idList.get(i));
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        response.put("missing", missing);
+        sendJsonResponse(exchange, 200, response);
+    }
+
+    // Comma-separated IDs, duplicates dropped, first occurrence keeps its position
+    private static List<Integer> parseIds(String ids) {
+        LinkedHashSet<Integer> unique = new LinkedHashSet<>();
+        for (String id : ids.split(",")) {
+            if (id.isBlank()) {
+                continue;
+            }
+            try {
+                unique.add(Integer.parseInt(id.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid ID: " + id.trim());
+            }
+        }
+        if (unique.isEmpty()) {
+            throw new IllegalArgumentException("ids parameter is empty");
+        }
+        if (unique.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " IDs per request");
+        }
+        return new ArrayList<>(unique);
+    }
+
+
+//     Run a POST once per Idempotency-Key (when the client sends one) and replay the stored result to retries
+
+    private static void sendIdempotent(HttpExchange exchange, String route, String body,
+                                       Supplier<IdempotencyStore.StoredResponse> action) throws IOException {
+        String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        IdempotencyStore.StoredResponse response;
+        if (key == null) {
+            response = action.get();
+        } else if (key.isEmpty() || key.length() > 255) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Idempotency-Key must be 1-255 characters");
+            sendJsonResponse(exchange, 400, error);
+            return;
+        } else {
+            try {
+                IdempotencyStore.Outcome outcome = idempotency.execute(route, key, body, action);
+                response = outcome.response;
+                if (outcome.replayed) {
+                    exchange.getResponseHeaders().set("Idempotent-Replayed", "true");
+                }
+            } catch (IdempotencyStore.KeyReuseException e) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", e.getMessage());
+                sendJsonResponse(exchange, 422, error);
+                return;
+            } catch (TimeoutException e) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "A request with this Idempotency-Key is still in progress");
+                sendJsonResponse(exchange, 409, error);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+
+        for (Map.Entry<String, String> header : response.headers.entrySet()) {
+            exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+        }
+        sendJsonResponse(exchange, response.status, response.body);
     }
 
 
@@ -151,6 +507,109 @@ public class RestServer {
         }
     }
 
+    // Compression ratio and CPU time per route
+    static class CompressionStatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (handleCORSPreflight(exchange)) return;
+
+            if ("GET".equals(exchange.getRequestMethod())) {
+                sendJsonResponse(exchange, 200, ResponseCompression.snapshot());
+            } else {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Method not allowed");
+                sendJsonResponse(exchange, 405, error);
+            }
+        }
+    }
+
+    // Per-route latency, throughput and status metrics as JSON or Prometheus text
+    static class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (handleCORSPreflight(exchange)) return;
+
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Method not allowed");
+                sendJsonResponse(exchange, 405, error);
+                return;
+            }
+
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            boolean prometheus = "prometheus".equals(QueryParams.of(exchange).get("format"))
+                    || (accept != null && accept.contains("text/plain"));
+
+            if (prometheus) {
+                StringBuilder text = new StringBuilder(8 * 1024);
+                MetricsRegistry.writePrometheus(text);
+                writeCompressionMetrics(text);
+                CacheStatistics.writePrometheus(text);
+                AdmissionController.writePrometheus(text);
+                text.append("# HELP foodhub_access_log_dropped_total Access log records dropped because the ring was full.\n");
+                text.append("# TYPE foodhub_access_log_dropped_total counter\n");
+                text.append("foodhub_access_log_dropped_total ").append(AccessLog.droppedRecords()).append('\n');
+
+                byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+                addCORSHeaders(exchange);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            } else {
+                Map<String, Object> metrics = MetricsRegistry.toMap();
+                metrics.put("compression", ResponseCompression.snapshot());
+                metrics.put("cache", CacheStatistics.toMap());
+                metrics.put("phoneIndex", CustomerDAO.getPhoneIndex().snapshot());
+                metrics.put("orderEvents", OrderEventBus.snapshot());
+                metrics.put("admission", AdmissionController.snapshot());
+                metrics.put("database", HibernateUtil.snapshot());
+                metrics.put("sales", salesAggregates.snapshot());
+                if (httpServer instanceof NioHttpServer) {
+                    metrics.put("http", ((NioHttpServer) httpServer).snapshot());
+                }
+                if (orderIngestion != null) {
+                    metrics.put("orderIngestion", orderIngestion.snapshot());
+                }
+                metrics.put("accessLogDropped", AccessLog.droppedRecords());
+                sendJsonResponse(exchange, 200, metrics);
+            }
+        }
+
+        private static void writeCompressionMetrics(StringBuilder text) {
+            Map<String, Map<String, Object>> compression = ResponseCompression.snapshot();
+            String[][] series = {
+                    {"foodhub_compression_bytes_in_total", "bytesIn", "Response bytes before compression."},
+                    {"foodhub_compression_bytes_out_total", "bytesOut", "Response bytes after compression."},
+                    {"foodhub_compression_cpu_seconds_total", "cpuMillis", "CPU time spent compressing."}
+            };
+            for (String[] metric : series) {
+                // CPU time is only present for routes where it could be measured
+                boolean present = false;
+                for (Map<String, Object> route : compression.values()) {
+                    present |= route.containsKey(metric[1]);
+                }
+                if (!present) {
+                    continue;
+                }
+                text.append("# HELP ").append(metric[0]).append(' ').append(metric[2]).append('\n');
+                text.append("# TYPE ").append(metric[0]).append(" counter\n");
+                for (Map.Entry<String, Map<String, Object>> route : compression.entrySet()) {
+                    Object value = route.getValue().get(metric[1]);
+                    if (value == null) {
+                        continue;
+                    }
+                    if (metric[1].equals("cpuMillis")) {
+                        value = ((Number) value).doubleValue() / 1000.0;
+                    }
+                    text.append(metric[0]).append("{route=\"").append(route.getKey()).append("\"} ")
+                            .append(value).append('\n');
+                }
+            }
+        }
+    }
+
     // MENU HANDLERS
 
     static class MenuHandler implements HttpHandler {
@@ -160,8 +619,21 @@ public class RestServer {
 
             try {
                 if ("GET".equals(exchange.getRequestMethod())) {
-                    List<MenuItem> menuItems = menuItemDAO.getAvailableMenuItems();
-                    sendJsonResponse(exchange, 200, menuItems);
+                    QueryParams params = QueryParams.of(exchange);
+                    String ids = params.get("ids");
+                    if (ids != null) {
+                        sendMultiGet(exchange, ids, menuItemDAO::getMenuItemsByIds);
+                    } else if (params.has("fields")) {
+                        // Narrowed list: only the requested columns are read. The snapshot always
+                        // holds whole items, so this goes to the database.
+                        FieldSet fields = parseFields(exchange, params, MenuItemDAO::fieldSet);
+                        if (fields != null) {
+                            sendJsonResponse(exchange, 200, menuItemDAO.getAllMenuItems(fields));
+                        }
+                    } else {
+                        // Served from the in-memory snapshot, rebuilt whenever the menu changes
+                        sendMenuSnapshot(exchange, menuSnapshot.get());
+                    }
 
                 } else if ("POST".equals(exchange.getRequestMethod())) {
                     String body = readRequestBody(exchange);
@@ -194,9 +666,14 @@ public class RestServer {
 
             try {
                 if ("GET".equals(exchange.getRequestMethod())) {
-                    String query = exchange.getRequestURI().getQuery();
-                    if (query != null && query.startsWith("category=")) {
-                        String category = query.split("=")[1];
+                    QueryParams params = QueryParams.of(exchange);
+                    String category = params.get("category");
+                    if (category != null && !category.isEmpty() && params.has("fields")) {
+                        FieldSet fields = parseFields(exchange, params, MenuItemDAO::fieldSet);
+                        if (fields != null) {
+                            sendJsonResponse(exchange, 200, menuItemDAO.getMenuItemsByCategory(category, fields));
+                        }
+                    } else if (category != null && !category.isEmpty()) {
                         List<MenuItem> menuItems = menuItemDAO.getMenuItemsByCategory(category);
                         sendJsonResponse(exchange, 200, menuItems);
                     } else {
@@ -220,6 +697,20 @@ public class RestServer {
 
     // CUSTOMER HANDLERS
 
+    // Register a customer from a POST /api/customers body
+    private static IdempotencyStore.StoredResponse addCustomer(String body) {
+        Customer customer = gson.fromJson(body, Customer.class);
+        customer.setCreatedDate(new Date());
+
+        int id = customerDAO.addCustomer(customer);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", id > 0);
+        response.put("customerId", id);
+        response.put("message", id > 0 ? "Customer added successfully" : "Failed to add customer");
+        return new IdempotencyStore.StoredResponse(id > 0 ? 201 : 400, response);
+    }
+
     static class CustomerHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -227,23 +718,59 @@ public class RestServer {
 
             try {
                 if ("GET".equals(exchange.getRequestMethod())) {
-                    List<Customer> customers = customerDAO.getAllCustomers();
-                    sendJsonResponse(exchange, 200, customers);
+                    QueryParams params = QueryParams.of(exchange);
+                    // ?fields=id,name,phone selects only those columns
+                    FieldSet fields = params.has("fields") ? parseFields(exchange, params, CustomerDAO::fieldSet) : null;
+                    if (fields == null && params.has("fields")) {
+                        return;
+                    }
 
-                } else if ("POST".equals(exchange.getRequestMethod())) {
-                    String body = readRequestBody(exchange);
-                    System.out.println("Received customer data: " + body);
+                    if ("true".equals(params.get("stream")) && fields != null) {
+                        sendJsonStream(exchange, Map.class,
+                                (Consumer<Map<String, Object>> rows) -> customerDAO.streamAllCustomers(fields, rows));
+                    } else if ("true".equals(params.get("stream"))) {
+                        // Admin export: rows are written as they are read
+                        sendJsonStream(exchange, Customer.class, customerDAO::streamAllCustomers);
+                    } else if (params.has("limit") || params.has("cursor")) {
+                        PageCursor cursor;
+                        int limit;
+                        try {
+                            cursor = parseCursor(params);
+                            limit = parseLimit(params);
+                        } catch (IllegalArgumentException e) {
+                            Map<String, String> error = new HashMap<>();
+                            error.put("error", e.getMessage());
+                            sendJsonResponse(exchange, 400, error);
+                            return;
+                        }
 
-                    Customer customer = gson.fromJson(body, Customer.class);
-                    customer.setCreatedDate(new Date());
+                        int afterId = cursor == null ? 0 : cursor.getId();
 
-                    int id = customerDAO.addCustomer(customer);
+                        PageCursor next = null;
+                        if (fields != null) {
+                            List<Map<String, Object>> customers = customerDAO.getCustomersPage(afterId, limit, fields);
+                            if (customers.size() == limit) {
+                                next = new PageCursor(0, (Integer) customers.get(customers.size() - 1).get("id"));
+                            }
+                            sendJsonResponse(exchange, 200, page(customers, next));
+                        } else {
+                            List<Customer> customers = customerDAO.getCustomersPage(afterId, limit);
+                            if (customers.size() == limit) {
+                                next = new PageCursor(0, customers.get(customers.size() - 1).getId());
+                            }
+                            sendJsonResponse(exchange, 200, page(customers, next));
+                        }
+                    } else if (fields != null) {
+                        sendJsonResponse(exchange, 200, customerDAO.getAllCustomers(fields));
+                    } else {
+                        List<Customer> customers = customerDAO.getAllCustomers();
+                        sendJsonResponse(exchange, 200, customers);
+                    }
 
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("success", id > 0);
-                    response.put("customerId", id);
-                    response.put("message", id > 0 ? "Customer added successfully" : "Failed to add customer");
-                    sendJsonResponse(exchange, id > 0 ? 201 : 400, response);
+                } else if ("POST".equals(exchange.getRequestMethod())) {
+                    String body = readRequestBody(exchange);
+                    AccessLog.sampleBody("POST", "/api/customers", body);
+                    sendIdempotent(exchange, "/api/customers", body, () -> addCustomer(body));
 
                 } else {
                     Map<String, String> error = new HashMap<>();
@@ -266,9 +793,23 @@ public class RestServer {
 
             try {
                 if ("GET".equals(exchange.getRequestMethod())) {
-                    String query = exchange.getRequestURI().getQuery();
-                    if (query != null && query.startsWith("id=")) {
-                        int id = Integer.parseInt(query.split("=")[1]);
+                    QueryParams params = QueryParams.of(exchange);
+                    String ids = params.get("ids");
+                    if (ids != null) {
+                        sendMultiGet(exchange, ids, customerDAO::getCustomersByIds);
+                    } else if (params.has("phone")) {
+                        // Checkout: recognise a returning customer by phone number
+                        Customer customer = customerDAO.getCustomerByPhone(params.get("phone"));
+
+                        if (customer != null) {
+                            sendJsonResponse(exchange, 200, customer);
+                        } else {
+                            Map<String, String> error = new HashMap<>();
+                            error.put("error", "Customer not found");
+                            sendJsonResponse(exchange, 404, error);
+                        }
+                    } else if (params.has("id")) {
+                        int id = Integer.parseInt(params.get("id"));
                         Customer customer = customerDAO.getCustomerById(id);
 
                         if (customer != null) {
@@ -299,6 +840,38 @@ public class RestServer {
 
     // ORDER HANDLERS
 
+    // Place an order from a POST /api/orders body
+    private static IdempotencyStore.StoredResponse placeOrder(String body) {
+        OrderRequest request = OrderRequest.parse(gson, body);
+        Order order = request.getOrder();
+        List<OrderItem> orderItems = request.getItems();
+
+        if (orderIngestion != null) {
+            // Write-behind mode: accept now, commit with the next group
+            String reference = orderIngestion.submit(order, orderItems);
+            if (reference == null) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Order queue is full, please retry");
+                return new IdempotencyStore.StoredResponse(503, error,
+                        Map.of("Retry-After", String.valueOf(orderIngestion.retryAfterSeconds())));
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("reference", reference);
+            response.put("status", OrderIngestionQueue.State.QUEUED);
+            return new IdempotencyStore.StoredResponse(202, response);
+        }
+
+        // Order and items are written in one transaction, so a failure leaves nothing behind
+        int orderId = orderDAO.placeOrder(order, orderItems);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", orderId > 0);
+        response.put("orderId", orderId);
+        response.put("message", orderId > 0 ? "Order placed successfully" : "Failed to place order");
+        return new IdempotencyStore.StoredResponse(orderId > 0 ? 201 : 400, response);
+    }
+
     static class OrderHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -306,12 +879,58 @@ public class RestServer {
 
             try {
                 if ("GET".equals(exchange.getRequestMethod())) {
-                    String query = exchange.getRequestURI().getQuery();
+                    QueryParams params = QueryParams.of(exchange);
+                    // ?fields=id,status,totalAmount selects only those columns (not with customerId,
+                    // which is answered from the query cache)
+                    FieldSet fields = params.has("fields") ? parseFields(exchange, params, OrderDAO::fieldSet) : null;
+                    if (fields == null && params.has("fields")) {
+                        return;
+                    }
 
-                    if (query != null && query.startsWith("customerId=")) {
-                        int customerId = Integer.parseInt(query.split("=")[1]);
+                    if (params.has("customerId")) {
+                        int customerId = Integer.parseInt(params.get("customerId"));
                         List<Order> orders = orderDAO.getOrdersByCustomerId(customerId);
                         sendJsonResponse(exchange, 200, orders);
+                    } else if ("true".equals(params.get("stream")) && fields != null) {
+                        sendJsonStream(exchange, Map.class,
+                                (Consumer<Map<String, Object>> rows) -> orderDAO.streamAllOrders(fields, rows));
+                    } else if ("true".equals(params.get("stream"))) {
+                        // Admin export: rows are written as they are read
+                        sendJsonStream(exchange, Order.class, orderDAO::streamAllOrders);
+                    } else if (params.has("limit") || params.has("cursor")) {
+                        PageCursor cursor;
+                        int limit;
+                        try {
+                            cursor = parseCursor(params);
+                            limit = parseLimit(params);
+                        } catch (IllegalArgumentException e) {
+                            Map<String, String> error = new HashMap<>();
+                            error.put("error", e.getMessage());
+                            sendJsonResponse(exchange, 400, error);
+                            return;
+                        }
+
+                        Date afterDate = cursor == null ? null : new Date(cursor.getSortKey());
+                        int afterId = cursor == null ? 0 : cursor.getId();
+
+                        PageCursor next = null;
+                        if (fields != null) {
+                            List<Map<String, Object>> orders = orderDAO.getOrdersPage(afterDate, afterId, limit, fields);
+                            if (orders.size() == limit) {
+                                Map<String, Object> last = orders.get(orders.size() - 1);
+                                next = new PageCursor(((Date) last.get("orderDate")).getTime(), (Integer) last.get("id"));
+                            }
+                            sendJsonResponse(exchange, 200, page(orders, next));
+                        } else {
+                            List<Order> orders = orderDAO.getOrdersPage(afterDate, afterId, limit);
+                            if (orders.size() == limit) {
+                                Order last = orders.get(orders.size() - 1);
+                                next = new PageCursor(last.getOrderDate().getTime(), last.getId());
+                            }
+                            sendJsonResponse(exchange, 200, page(orders, next));
+                        }
+                    } else if (fields != null) {
+                        sendJsonResponse(exchange, 200, orderDAO.getAllOrders(fields));
                     } else {
                         List<Order> orders = orderDAO.getAllOrders();
                         sendJsonResponse(exchange, 200, orders);
@@ -319,51 +938,8 @@ public class RestServer {
 
                 } else if ("POST".equals(exchange.getRequestMethod())) {
                     String body = readRequestBody(exchange);
-                    System.out.println("Received order data: " + body);
-
-                    Map<String, Object> orderData = gson.fromJson(body, Map.class);
-
-                    // Create order
-                    Order order = new Order();
-                    order.setCustomerId(((Double) orderData.get("customerId")).intValue());
-                    order.setOrderDate(new Date());
-//                    order.setTotalAmount((BigDecimal) orderData.get("totalAmount"));
-                    order.setTotalAmount(
-                            BigDecimal.valueOf(((Number) orderData.get("totalAmount")).doubleValue())
-                    );
-                    order.setStatus("PENDING");
-                    order.setDeliveryAddress((String) orderData.get("deliveryAddress"));
-
-                    int orderId = orderDAO.addOrder(order);
-
-                    if (orderId > 0) {
-                        // Add order items
-                        List<Map<String, Object>> items = (List<Map<String, Object>>) orderData.get("items");
-                        for (Map<String, Object> item : items) {
-                            OrderItem orderItem = new OrderItem();
-                            orderItem.setOrderId(orderId);
-                            orderItem.setMenuItemId(((Double) item.get("menuItemId")).intValue());
-                            orderItem.setQuantity(((Double) item.get("quantity")).intValue());
-//                            orderItem.setUnitPrice((BigDecimal) item.get("unitPrice"));
-//                            orderItem.setSubtotal((BigDecimal) item.get("subtotal"));
-
-                            orderItem.setUnitPrice(
-                                    BigDecimal.valueOf(((Number) item.get("unitPrice")).doubleValue())
-                            );
-
-                            orderItem.setSubtotal(
-                                    BigDecimal.valueOf(((Number) item.get("subtotal")).doubleValue())
-                            );
-
-                            orderDAO.addOrderItem(orderItem);
-                        }
-                    }
-
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("success", orderId > 0);
-                    response.put("orderId", orderId);
-                    response.put("message", orderId > 0 ? "Order placed successfully" : "Failed to place order");
-                    sendJsonResponse(exchange, orderId > 0 ? 201 : 400, response);
+                    AccessLog.sampleBody("POST", "/api/orders", body);
+                    sendIdempotent(exchange, "/api/orders", body, () -> placeOrder(body));
 
                 } else {
                     Map<String, String> error = new HashMap<>();
@@ -379,6 +955,32 @@ public class RestServer {
         }
     }
 
+    // Status of an order accepted in write-behind mode
+    static class ProvisionalOrderHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (handleCORSPreflight(exchange)) return;
+
+            if ("GET".equals(exchange.getRequestMethod())) {
+                String reference = QueryParams.of(exchange).get("ref");
+                Map<String, Object> status = orderIngestion == null || reference == null
+                        ? null : orderIngestion.status(reference);
+
+                if (status != null) {
+                    sendJsonResponse(exchange, 200, status);
+                } else {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", reference == null ? "ref parameter required" : "Unknown reference");
+                    sendJsonResponse(exchange, reference == null ? 400 : 404, error);
+                }
+            } else {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Method not allowed");
+                sendJsonResponse(exchange, 405, error);
+            }
+        }
+    }
+
     static class OrderByIdHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -386,9 +988,12 @@ public class RestServer {
 
             try {
                 if ("GET".equals(exchange.getRequestMethod())) {
-                    String query = exchange.getRequestURI().getQuery();
-                    if (query != null && query.startsWith("id=")) {
-                        int id = Integer.parseInt(query.split("=")[1]);
+                    QueryParams params = QueryParams.of(exchange);
+                    String ids = params.get("ids");
+                    if (ids != null) {
+                        sendMultiGet(exchange, ids, orderDAO::getOrdersByIds);
+                    } else if (params.has("id")) {
+                        int id = Integer.parseInt(params.get("id"));
                         Order order = orderDAO.getOrderById(id);
 
                         if (order != null) {
@@ -424,9 +1029,9 @@ public class RestServer {
 
             try {
                 if ("GET".equals(exchange.getRequestMethod())) {
-                    String query = exchange.getRequestURI().getQuery();
-                    if (query != null && query.startsWith("orderId=")) {
-                        int orderId = Integer.parseInt(query.split("=")[1]);
+                    String orderIdParam = QueryParams.of(exchange).get("orderId");
+                    if (orderIdParam != null) {
+                        int orderId = Integer.parseInt(orderIdParam);
                         List<OrderItem> orderItems = orderDAO.getOrderItems(orderId);
                         sendJsonResponse(exchange, 200, orderItems);
                     } else {
@@ -448,6 +1053,367 @@ public class RestServer {
         }
     }
 
+    // Order + customer + items with menu names, from one query
+    static class OrderDetailHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (handleCORSPreflight(exchange)) return;
+
+            try {
+                if ("GET".equals(exchange.getRequestMethod())) {
+                    String id = QueryParams.of(exchange).get("id");
+                    if (id != null) {
+                        OrderDetail detail = orderDAO.getOrderDetail(Integer.parseInt(id));
+
+                        if (detail != null) {
+                            sendJsonResponse(exchange, 200, detail);
+                        } else {
+                            Map<String, String> error = new HashMap<>();
+                            error.put("error", "Order not found");
+                            sendJsonResponse(exchange, 404, error);
+                        }
+                    } else {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", "ID parameter required");
+                        sendJsonResponse(exchange, 400, error);
+                    }
+                } else {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Method not allowed");
+                    sendJsonResponse(exchange, 405, error);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Internal server error: " + e.getMessage());
+                sendJsonResponse(exchange, 500, error);
+            }
+        }
+    }
+
+    // A keyset page of order details; items and customers are loaded in bulk, not per order
+    static class OrderDetailsPageHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (handleCORSPreflight(exchange)) return;
+
+            try {
+                if ("GET".equals(exchange.getRequestMethod())) {
+                    QueryParams params = QueryParams.of(exchange);
+
+                    PageCursor cursor;
+                    int limit;
+                    try {
+                        cursor = parseCursor(params);
+                        limit = parseLimit(params);
+                    } catch (IllegalArgumentException e) {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", e.getMessage());
+                        sendJsonResponse(exchange, 400, error);
+                        return;
+                    }
+
+                    List<OrderDetail> details = cursor == null
+                            ? orderDAO.getOrderDetailsPage(null, 0, limit)
+                            : orderDAO.getOrderDetailsPage(new Date(cursor.getSortKey()), cursor.getId(), limit);
+
+                    PageCursor next = null;
+                    if (details.size() == limit) {
+                        Order last = details.get(details.size() - 1).getOrder();
+                        next = new PageCursor(last.getOrderDate().getTime(), last.getId());
+                    }
+                    sendJsonResponse(exchange, 200, page(details, next));
+                } else {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Method not allowed");
+                    sendJsonResponse(exchange, 405, error);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Internal server error: " + e.getMessage());
+                sendJsonResponse(exchange, 500, error);
+            }
+        }
+    }
+
+    // Kitchen dashboard: move many orders to one status in a single request
+    static class BulkOrderStatusHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (handleCORSPreflight(exchange)) return;
+
+            try {
+                if ("PUT".equals(exchange.getRequestMethod())) {
+                    String body = readRequestBody(exchange);
+                    Map<String, Object> data = gson.fromJson(body, Map.class);
+
+                    Object rawStatus = data == null ? null : data.get("status");
+                    Object rawIds = data == null ? null : data.get("orderIds");
+                    OrderStatus status = rawStatus instanceof String ? OrderStatus.parse((String) rawStatus) : null;
+                    if (status == null || !(rawIds instanceof List) || ((List<?>) rawIds).isEmpty()) {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", "orderIds and a valid status are required");
+                        sendJsonResponse(exchange, 400, error);
+                        return;
+                    }
+
+                    LinkedHashSet<Integer> unique = new LinkedHashSet<>();
+                    for (Object id : (List<?>) rawIds) {
+                        // Gson reads every JSON number as a Double; anything else is a client error
+                        if (!(id instanceof Number) || ((Number) id).doubleValue() != ((Number) id).intValue()) {
+                            Map<String, String> error = new HashMap<>();
+                            error.put("error", "orderIds must be integers: " + id);
+                            sendJsonResponse(exchange, 400, error);
+                            return;
+                        }
+                        unique.add(((Number) id).intValue());
+                    }
+                    if (unique.size() > MAX_BATCH_IDS) {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", "At most " + MAX_BATCH_IDS + " orders per request");
+                        sendJsonResponse(exchange, 400, error);
+                        return;
+                    }
+
+                    List<OrderStatusChange> changes = orderDAO.updateOrderStatuses(new ArrayList<>(unique), status);
+                    if (changes == null) {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", "Failed to update status");
+                        sendJsonResponse(exchange, 500, error);
+                        return;
+                    }
+
+                    int updated = 0;
+                    for (OrderStatusChange change : changes) {
+                        if (change.getResult() == OrderStatusChange.Result.UPDATED) {
+                            updated++;
+                        }
+                    }
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("updated", updated);
+                    response.put("results", changes);
+                    sendJsonResponse(exchange, 200, response);
+
+                } else {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Method not allowed");
+                    sendJsonResponse(exchange, 405, error);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Internal server error: " + e.getMessage());
+                sendJsonResponse(exchange, 500, error);
+            }
+        }
+    }
+
+    // Server-sent events for order changes, so apps and the kitchen screen need not poll.
+    // Each open stream holds a request thread for its whole life. On a platform thread pool the
+    // streams are capped at a quarter of the pool (foodhub.events.maxStreams overrides it), so
+    // they cannot starve ordinary requests; past the cap a new stream gets a 503.
+    static class OrderEventsHandler implements HttpHandler {
+        private static final long HEARTBEAT_SECONDS = 15;
+
+        private final Semaphore streams;
+
+        OrderEventsHandler(int maxStreams) {
+            this.streams = new Semaphore(Math.max(1, maxStreams));
+        }
+
+        // Virtual threads are cheap to park, so there only the event bus subscriber limit applies
+        static int maxStreams(ExecutorService executor) {
+            int fallback = executor instanceof ThreadPoolExecutor
+                    ? ((ThreadPoolExecutor) executor).getMaximumPoolSize() / 4
+                    : Integer.MAX_VALUE;
+            return Integer.getInteger("foodhub.events.maxStreams", fallback);
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (handleCORSPreflight(exchange)) return;
+
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Method not allowed");
+                sendJsonResponse(exchange, 405, error);
+                return;
+            }
+
+            QueryParams params = QueryParams.of(exchange);
+            Integer customerId;
+            try {
+                customerId = params.has("customerId") ? Integer.valueOf(params.get("customerId")) : null;
+            } catch (NumberFormatException e) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Invalid customerId");
+                sendJsonResponse(exchange, 400, error);
+                return;
+            }
+            Set<String> statuses = null;
+            if (params.has("status")) {
+                statuses = new HashSet<>();
+                for (String status : params.get("status").split(",")) {
+                    if (OrderStatus.parse(status) == null) {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", "Invalid status: " + status);
+                        sendJsonResponse(exchange, 400, error);
+                        return;
+                    }
+                    statuses.add(OrderStatus.parse(status).name());
+                }
+            }
+
+            if (!streams.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "30");
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Too many event streams");
+                sendJsonResponse(exchange, 503, error);
+                return;
+            }
+            try {
+                stream(exchange, customerId, statuses);
+            } finally {
+                streams.release();
+            }
+        }
+
+        private void stream(HttpExchange exchange, Integer customerId, Set<String> statuses) throws IOException {
+            OrderEventBus.Subscription subscription = OrderEventBus.subscribe(OrderEventBus.filter(customerId, statuses));
+            if (subscription == null) {
+                exchange.getResponseHeaders().set("Retry-After", "30");
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Too many event subscribers");
+                sendJsonResponse(exchange, 503, error);
+                return;
+            }
+
+            addCORSHeaders(exchange);
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", "text/event-stream; charset=UTF-8");
+            headers.set("Cache-Control", "no-cache");
+            headers.set("X-Accel-Buffering", "no");
+            exchange.sendResponseHeaders(200, 0);
+
+            try (subscription; OutputStream os = exchange.getResponseBody()) {
+                os.write("retry: 3000\n\n".getBytes(StandardCharsets.UTF_8));
+                os.flush();
+                while (true) {
+                    OrderEvent event = subscription.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                    if (event != null) {
+                        String name = event.getType() == OrderEvent.Type.ORDER_CREATED ? "order-created"
+                                : event.getType() == OrderEvent.Type.ITEM_ADDED ? "item-added" : "status-changed";
+                        os.write(("id: " + event.getSequence() + "\nevent: " + name + "\ndata: "
+                                + gson.toJson(event) + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    } else if (subscription.isClosed()) {
+                        if (subscription.isEvicted()) {
+                            // Fell too far behind; the client should reconnect and re-read current state
+                            os.write("event: evicted\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8));
+                        }
+                        break;
+                    } else {
+                        os.write(": keepalive\n\n".getBytes(StandardCharsets.UTF_8));
+                    }
+                    os.flush();
+                }
+            } catch (IOException e) {
+                // Client went away
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // REPORT HANDLERS
+
+    // Revenue, order count and top items for a date range, from the in-memory sales aggregates.
+    // Without ?status= every status except CANCELLED counts.
+    static class SalesReportHandler implements HttpHandler {
+        private static final int DEFAULT_DAYS = 30;
+        private static final int DEFAULT_TOP = 10;
+        private static final int MAX_TOP = 100;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (handleCORSPreflight(exchange)) return;
+
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Method not allowed");
+                    sendJsonResponse(exchange, 405, error);
+                    return;
+                }
+                if (!salesAggregates.isReady()) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Sales report unavailable");
+                    sendJsonResponse(exchange, 503, error);
+                    return;
+                }
+
+                QueryParams params = QueryParams.of(exchange);
+                LocalDate from;
+                LocalDate to;
+                try {
+                    to = params.has("to") ? LocalDate.parse(params.get("to")) : LocalDate.now();
+                    from = params.has("from") ? LocalDate.parse(params.get("from")) : to.minusDays(DEFAULT_DAYS - 1);
+                } catch (DateTimeParseException e) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Dates must be yyyy-MM-dd");
+                    sendJsonResponse(exchange, 400, error);
+                    return;
+                }
+                if (from.isAfter(to)) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "from is after to");
+                    sendJsonResponse(exchange, 400, error);
+                    return;
+                }
+
+                List<OrderStatus> statuses = new ArrayList<>();
+                if (params.has("status")) {
+                    for (String status : params.get("status").split(",")) {
+                        OrderStatus parsed = OrderStatus.parse(status);
+                        if (parsed == null) {
+                            Map<String, String> error = new HashMap<>();
+                            error.put("error", "Invalid status: " + status);
+                            sendJsonResponse(exchange, 400, error);
+                            return;
+                        }
+                        if (!statuses.contains(parsed)) {
+                            statuses.add(parsed);
+                        }
+                    }
+                } else {
+                    for (OrderStatus status : OrderStatus.values()) {
+                        if (status != OrderStatus.CANCELLED) {
+                            statuses.add(status);
+                        }
+                    }
+                }
+
+                int top;
+                try {
+                    top = params.has("top")
+                            ? Math.max(1, Math.min(MAX_TOP, Integer.parseInt(params.get("top"))))
+                            : DEFAULT_TOP;
+                } catch (NumberFormatException e) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Invalid top");
+                    sendJsonResponse(exchange, 400, error);
+                    return;
+                }
+                sendJsonResponse(exchange, 200, salesAggregates.report(from, to, statuses, top));
+            } catch (Exception e) {
+                e.printStackTrace();
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "Internal server error: " + e.getMessage());
+                sendJsonResponse(exchange, 500, error);
+            }
+        }
+    }
+
     static class OrderStatusHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -458,15 +1424,49 @@ public class RestServer {
                     String body = readRequestBody(exchange);
                     Map<String, Object> data = gson.fromJson(body, Map.class);
 
-                    int orderId = ((Double) data.get("orderId")).intValue();
-                    String status = (String) data.get("status");
+                    Object rawId = data == null ? null : data.get("orderId");
+                    Object rawStatus = data == null ? null : data.get("status");
+                    if (!(rawId instanceof Number) || ((Number) rawId).doubleValue() != ((Number) rawId).intValue()) {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", "A numeric orderId is required");
+                        sendJsonResponse(exchange, 400, error);
+                        return;
+                    }
+                    OrderStatus status = rawStatus instanceof String ? OrderStatus.parse((String) rawStatus) : null;
+                    if (status == null) {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", "A valid status is required");
+                        sendJsonResponse(exchange, 400, error);
+                        return;
+                    }
 
-                    boolean success = orderDAO.updateOrderStatus(orderId, status);
+                    // Same rules as the bulk endpoint: only allowed transitions, under a row lock
+                    OrderStatusChange change = orderDAO.updateOrderStatus(((Number) rawId).intValue(), status);
+                    if (change == null) {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", "Failed to update status");
+                        sendJsonResponse(exchange, 500, error);
+                        return;
+                    }
+                    if (change.getResult() == OrderStatusChange.Result.NOT_FOUND) {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", "Order not found");
+                        sendJsonResponse(exchange, 404, error);
+                        return;
+                    }
+                    if (change.getResult() == OrderStatusChange.Result.INVALID_TRANSITION) {
+                        Map<String, String> error = new HashMap<>();
+                        error.put("error", "Cannot move order from " + change.getPreviousStatus() + " to " + status.name());
+                        sendJsonResponse(exchange, 409, error);
+                        return;
+                    }
 
                     Map<String, Object> response = new HashMap<>();
-                    response.put("success", success);
-                    response.put("message", success ? "Order status updated" : "Failed to update status");
-                    sendJsonResponse(exchange, success ? 200 : 400, response);
+                    response.put("success", true);
+                    response.put("message", "Order status updated");
+                    response.put("previousStatus", change.getPreviousStatus());
+                    response.put("status", change.getStatus());
+                    sendJsonResponse(exchange, 200, response);
 
                 } else {
                     Map<String, String> error = new HashMap<>();
@@ -0,0 +1,188 @@
+package com.foodhub.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single dispatcher for all API routes, registered on the server's root context.
+ *
+ * Routes are method + path, where the path may contain {name} segments. Paths without variables
+ * are looked up with one hash probe on the exact path (no prefix matching, so /api/order and
+ * /api/order/items never compete). Templates are compiled into a segment trie in which literal
+ * segments win over variables. Captured variables are handed to the handler via QueryParams.
+ */
+class Router implements HttpHandler {
+
+    static final String ANY = "*";
+
+    private static final byte[] NOT_FOUND = "{\"error\":\"Not found\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NOT_ALLOWED = "{\"error\":\"Method not allowed\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Map<String, Methods> exact = new HashMap<>();
+    private final Node root = new Node();
+    private final HttpHandler notFound;
+
+    Router(HttpHandler notFound) {
+        this.notFound = notFound;
+    }
+
+    // ANY hands every method (including OPTIONS preflight) to the handler
+    void add(String method, String template, HttpHandler handler) {
+        if (!template.contains("{")) {
+            exact.computeIfAbsent(template, t -> new Methods(new String[0])).put(method, handler);
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        Node node = root;
+        for (String segment : template.substring(1).split("/")) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                names.add(segment.substring(1, segment.length() - 1));
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        if (node.methods == null) {
+            node.methods = new Methods(names.toArray(new String[0]));
+        }
+        node.methods.put(method, handler);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getRawPath();
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+
+        Methods methods = exact.get(path);
+        String[] values = null;
+        if (methods == null) {
+            values = new String[8];
+            methods = match(path, values);
+        }
+        if (methods == null) {
+            notFound.handle(exchange);
+            return;
+        }
+
+        HttpHandler handler = methods.get(exchange.getRequestMethod());
+        if (handler == null) {
+            send(exchange, 405, NOT_ALLOWED);
+            return;
+        }
+        if (values != null) {
+            String[] captured = new String[methods.names.length];
+            for (int i = 0; i < captured.length; i++) {
+                captured[i] = decodeSegment(values[i]);
+            }
+            QueryParams.bind(exchange, methods.names, captured);
+            try {
+                handler.handle(exchange);
+            } finally {
+                QueryParams.unbind();
+            }
+            return;
+        }
+        handler.handle(exchange);
+    }
+
+    // Walk the trie one segment at a time, preferring literal children over the variable child
+    private Methods match(String path, String[] values) {
+        return match(root, path, 1, values, 0);
+    }
+
+    private static Methods match(Node node, String path, int start, String[] values, int captured) {
+        if (start > path.length()) {
+            return node.methods;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        String segment = path.substring(start, end);
+
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            Methods found = match(literal, path, end + 1, values, captured);
+            if (found != null) {
+                return found;
+            }
+        }
+        if (node.variable != null && !segment.isEmpty() && captured < values.length) {
+            values[captured] = segment;
+            return match(node.variable, path, end + 1, values, captured + 1);
+        }
+        return null;
+    }
+
+    // Percent-decode a path segment ('+' is literal in paths)
+    private static String decodeSegment(String segment) {
+        if (segment.indexOf('%') < 0) {
+            return segment;
+        }
+        return URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    // Default for unknown paths
+    static final class NotFoundHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            send(exchange, 404, NOT_FOUND);
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        Node variable;
+        Methods methods;
+    }
+
+    private static final class Methods {
+        final String[] names;
+        final Map<String, HttpHandler> handlers = new HashMap<>();
+        HttpHandler any;
+
+        Methods(String[] names) {
+            this.names = names;
+        }
+
+        void put(String method, HttpHandler handler) {
+            if (ANY.equals(method)) {
+                any = handler;
+            } else {
+                handlers.put(method, handler);
+            }
+        }
+
+        HttpHandler get(String method) {
+            HttpHandler handler = handlers.get(method);
+            if (handler == null && any == null && "OPTIONS".equals(method) && !handlers.isEmpty()) {
+                // CORS preflight: every handler answers OPTIONS itself
+                return handlers.values().iterator().next();
+            }
+            return handler != null ? handler : any;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.foodhub.cache;
+
+import com.foodhub.dao.MenuItemDAO;
+import com.foodhub.model.MenuItem;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the available menu as ready-to-send bytes.
+ *
+ * The snapshot is built on first use and rebuilt whenever MenuItemDAO commits a change,
+ * so GET /api/menu (including If-None-Match revalidation) never touches the database.
+ */
+public class MenuSnapshotCache {
+
+    private final MenuItemDAO menuItemDAO;
+    private final Gson gson;
+    private final Object rebuildLock = new Object();
+
+    private volatile Snapshot current;
+
+    public MenuSnapshotCache(MenuItemDAO menuItemDAO, Gson gson) {
+        this.menuItemDAO = menuItemDAO;
+        this.gson = gson;
+        MenuItemDAO.addChangeListener(this::rebuild);
+    }
+
+    public Snapshot get() {
+        Snapshot snapshot = current;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (rebuildLock) {
+            if (current == null) {
+                current = build();
+            }
+            return current;
+        }
+    }
+
+    // Rebuilds are serialized, so the last one to run always sees the latest committed menu
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            try {
+                current = build();
+            } catch (RuntimeException e) {
+                // Never keep serving a menu we know is stale; the next request retries the load
+                current = null;
+                throw e;
+            }
+        }
+    }
+
+    private Snapshot build() {
+        List<MenuItem> items = menuItemDAO.getAvailableMenuItems();
+        byte[] json = gson.toJson(items).getBytes(StandardCharsets.UTF_8);
+        return new Snapshot(json, gzip(json), etagOf(json), items.size());
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etagOf(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder etag = new StringBuilder(34).append('"');
+            for (int i = 0; i < 16; i++) {
+                etag.append(Character.forDigit((digest[i] >> 4) & 0xF, 16))
+                        .append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return etag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static final class Snapshot {
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+        private final String gzipEtag;
+        private final int itemCount;
+
+        Snapshot(byte[] json, byte[] gzip, String etag, int itemCount) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+            // A strong ETag names one representation, so the gzip bytes get their own
+            this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+            this.itemCount = itemCount;
+        }
+
+        public byte[] getJson() { return json; }
+        public byte[] getGzip() { return gzip; }
+        public String getEtag() { return etag; }
+        public String getGzipEtag() { return gzipEtag; }
+        public int getItemCount() { return itemCount; }
+
+        // True if an If-None-Match header value names the identity (gzip false) or gzip
+        // representation of this snapshot
+        public boolean matches(String ifNoneMatch, boolean gzip) {
+            String expected = gzip ? gzipEtag : etag;
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                // If-None-Match uses weak comparison, so a W/ prefix still matches
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(expected)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
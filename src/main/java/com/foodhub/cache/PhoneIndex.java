@@ -0,0 +1,143 @@
+package com.foodhub.cache;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory phone number to customer id index used by checkout to recognise returning customers.
+ *
+ * Known numbers are kept in a bounded LRU map. Numbers the database did not know are remembered
+ * for a short time as well, since a new customer's number is usually looked up more than once
+ * before they register. Keys are normalized, so "077 123-4567" and "0771234567" share an entry.
+ *
+ * All operations take one lock; a lookup that raced with a registration can never leave a
+ * negative entry behind for a number that is already indexed.
+ */
+public class PhoneIndex {
+
+    private final int maxEntries;
+    private final int maxMissingEntries;
+    private final long missingTtlNanos;
+
+    private final LinkedHashMap<String, Integer> ids;
+    private final Map<Integer, String> phonesById = new HashMap<>();
+    private final LinkedHashMap<String, Long> missing;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder missingHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PhoneIndex(int maxEntries, int maxMissingEntries, long missingTtl, TimeUnit unit) {
+        this.maxEntries = maxEntries;
+        this.maxMissingEntries = maxMissingEntries;
+        this.missingTtlNanos = unit.toNanos(missingTtl);
+        this.ids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                if (size() > PhoneIndex.this.maxEntries) {
+                    phonesById.remove(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        // Insertion order is expiry order, since every entry gets the same TTL
+        this.missing = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > PhoneIndex.this.maxMissingEntries;
+            }
+        };
+    }
+
+    // Keep digits and a leading '+', drop spaces, dashes, dots and brackets
+    public static String normalize(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                normalized.append(c);
+            } else if (c == '+' && normalized.length() == 0) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    // Customer id for the number, or null if it is not indexed
+    public synchronized Integer get(String normalizedPhone) {
+        Integer id = ids.get(normalizedPhone);
+        if (id != null) {
+            hits.increment();
+        }
+        return id;
+    }
+
+    // True if the database recently reported no customer with this number
+    public synchronized boolean isKnownMissing(String normalizedPhone) {
+        Long expiresAt = missing.get(normalizedPhone);
+        if (expiresAt == null) {
+            misses.increment();
+            return false;
+        }
+        if (expiresAt - System.nanoTime() <= 0) {
+            missing.remove(normalizedPhone);
+            misses.increment();
+            return false;
+        }
+        missingHits.increment();
+        return true;
+    }
+
+    public synchronized void put(String normalizedPhone, int customerId) {
+        if (normalizedPhone == null || normalizedPhone.isEmpty()) {
+            return;
+        }
+        String previous = phonesById.put(customerId, normalizedPhone);
+        if (previous != null && !previous.equals(normalizedPhone)) {
+            ids.remove(previous);
+        }
+        Integer displaced = ids.put(normalizedPhone, customerId);
+        if (displaced != null && displaced != customerId) {
+            phonesById.remove(displaced);
+        }
+        missing.remove(normalizedPhone);
+    }
+
+    public synchronized void putMissing(String normalizedPhone) {
+        if (!ids.containsKey(normalizedPhone)) {
+            missing.put(normalizedPhone, System.nanoTime() + missingTtlNanos);
+        }
+    }
+
+    // Forget whatever number the customer was indexed under
+    public synchronized void removeCustomer(int customerId) {
+        String phone = phonesById.remove(customerId);
+        if (phone != null) {
+            ids.remove(phone);
+        }
+    }
+
+    public synchronized void remove(String normalizedPhone) {
+        Integer id = ids.remove(normalizedPhone);
+        if (id != null) {
+            phonesById.remove(id);
+        }
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", ids.size());
+        stats.put("missingEntries", missing.size());
+        stats.put("hits", hits.sum());
+        stats.put("missingHits", missingHits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+}
@@ -1,37 +1,154 @@
 package com.foodhub.dao;
 
+import com.foodhub.cache.PhoneIndex;
 import com.foodhub.model.Customer;
 import com.foodhub.util.HibernateUtil;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class CustomerDAO {
 
+    // Shared by all instances so writes through any DAO keep lookups coherent
+    private static final PhoneIndex phoneIndex = new PhoneIndex(
+            Integer.getInteger("foodhub.phoneIndex.maxEntries", 100_000),
+            Integer.getInteger("foodhub.phoneIndex.maxMissingEntries", 50_000),
+            Integer.getInteger("foodhub.phoneIndex.missingTtlSeconds", 60), TimeUnit.SECONDS);
+
+    // Columns the list endpoints can be narrowed to with ?fields=
+    private static final List<String> FIELDS =
+            List.of("id", "name", "phone", "email", "address", "createdDate");
+
+    public static PhoneIndex getPhoneIndex() {
+        return phoneIndex;
+    }
+
+    // Null for no ?fields= (full entities); IllegalArgumentException for an unknown field.
+    // The id is always selected, it is the paging cursor.
+    public static FieldSet fieldSet(String spec) {
+        return FieldSet.parse(spec, "c", FIELDS, "id");
+    }
+
     // Get all customers
     public List<Customer> getAllCustomers() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery("FROM Customer", Customer.class).list();
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan()) {
+            return scan.query("FROM Customer", Customer.class).list();
+        }
+    }
+
+    // Get all customers, selecting only the given fields
+    public List<Map<String, Object>> getAllCustomers(FieldSet fields) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan()) {
+            return fields.toMaps(scan.query(fields.select() + "FROM Customer c", Object[].class).list());
+        }
+    }
+
+    // Get one page of customers ordered by id, starting after the given id (0 for the first page)
+    public List<Customer> getCustomersPage(int afterId, int limit) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan()) {
+            Query<Customer> query = scan.query(
+                    "FROM Customer WHERE id > :afterId ORDER BY id", Customer.class);
+            query.setParameter("afterId", afterId);
+            query.setMaxResults(limit);
+            return query.list();
+        }
+    }
+
+    // Same page, selecting only the given fields
+    public List<Map<String, Object>> getCustomersPage(int afterId, int limit, FieldSet fields) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan()) {
+            Query<Object[]> query = scan.query(
+                    fields.select() + "FROM Customer c WHERE c.id > :afterId ORDER BY c.id", Object[].class);
+            query.setParameter("afterId", afterId);
+            query.setMaxResults(limit);
+            return fields.toMaps(query.list());
+        }
+    }
+
+    // Stream all customers ordered by id without holding them in memory
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan();
+             ScrollableResults<Customer> results = scan.query(
+                             "FROM Customer ORDER BY id", Customer.class)
+                     .setFetchSize(OrderDAO.STREAM_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(results.get());
+            }
+        }
+    }
+
+    // Stream all customers ordered by id, selecting only the given fields
+    public void streamAllCustomers(FieldSet fields, Consumer<Map<String, Object>> consumer) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan();
+             ScrollableResults<Object[]> results = scan.query(
+                             fields.select() + "FROM Customer c ORDER BY c.id", Object[].class)
+                     .setFetchSize(OrderDAO.STREAM_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(fields.toMap(results.get()));
+            }
         }
     }
 
     // Get customer by ID
     public Customer getCustomerById(int id) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openReadSession(HibernateUtil.customerKey(id))) {
             return session.get(Customer.class, id);
         }
     }
 
-    // Get customer by phone
+    // Get customers for a list of IDs in one round trip (aligned with the IDs, null if missing)
+    public List<Customer> getCustomersByIds(List<Integer> ids) {
+        try (Session session = HibernateUtil.openReadSession(customerKeys(ids))) {
+            return session.byMultipleIds(Customer.class)
+                    .withBatchSize(ids.size())
+                    .multiLoad(ids);
+        }
+    }
+
+    // Get customer by phone. Known numbers resolve through the phone index and the entity cache;
+    // numbers recently found missing are answered without a query. Stays on the primary: a
+    // lagging replica would put a number that was just registered into the negative cache.
     public Customer getCustomerByPhone(String phone) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        if (phone == null) {
+            return null;
+        }
+        String key = PhoneIndex.normalize(phone);
+        Integer id = phoneIndex.get(key);
+        if (id == null && phoneIndex.isKnownMissing(key)) {
+            return null; // answered without waiting for a session
+        }
+        try (Session session = HibernateUtil.openSession()) {
+            if (id != null) {
+                Customer customer = session.get(Customer.class, id);
+                if (customer != null && key.equals(PhoneIndex.normalize(customer.getPhone()))) {
+                    return customer;
+                }
+                // Deleted or renumbered elsewhere; fall back to the database
+                phoneIndex.remove(key);
+            }
+
+            // Stored numbers are not normalized, so match either form
             Query<Customer> query = session.createQuery(
-                    "FROM Customer WHERE phone = :phone", Customer.class);
-            query.setParameter("phone", phone);
-            return query.uniqueResult();
+                    "FROM Customer WHERE phone IN (:phones) ORDER BY id", Customer.class);
+            query.setParameterList("phones", phone.equals(key) ? List.of(phone) : List.of(phone, key));
+            query.setMaxResults(1);
+            Customer customer = query.uniqueResult();
+            if (customer != null) {
+                phoneIndex.put(key, customer.getId());
+            } else {
+                phoneIndex.putMissing(key);
+            }
+            return customer;
         }
     }
 
@@ -41,7 +158,7 @@ public class CustomerDAO {
         Session session = null;
 
         try {
-            session = HibernateUtil.getSessionFactory().openSession();
+            session = HibernateUtil.openSession();
             transaction = session.beginTransaction();
 
             customer.setCreatedDate(new Date());
@@ -49,6 +166,8 @@ public class CustomerDAO {
             int id = (Integer) session.save(customer);
 
             transaction.commit();
+            phoneIndex.put(PhoneIndex.normalize(customer.getPhone()), id);
+            HibernateUtil.recordWrite(HibernateUtil.customerKey(id));
             return id;
 
         } catch (Exception e) {
@@ -69,10 +188,13 @@ public class CustomerDAO {
     // Update customer
     public boolean updateCustomer(Customer customer) {
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
             session.update(customer);
             transaction.commit();
+            phoneIndex.removeCustomer(customer.getId());
+            phoneIndex.put(PhoneIndex.normalize(customer.getPhone()), customer.getId());
+            HibernateUtil.recordWrite(HibernateUtil.customerKey(customer.getId()));
             return true;
         } catch (Exception e) {
             if (transaction != null) {
@@ -82,4 +204,12 @@ public class CustomerDAO {
             return false;
         }
     }
+
+    private static String[] customerKeys(List<Integer> ids) {
+        String[] keys = new String[ids.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = HibernateUtil.customerKey(ids.get(i));
+        }
+        return keys;
+    }
 }
\ No newline at end of file
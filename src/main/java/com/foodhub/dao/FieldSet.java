@@ -0,0 +1,72 @@
+package com.foodhub.dao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// The columns a list endpoint was asked for (?fields=id,name,price), checked against the entity's
+// whitelist. Only those columns are selected; each row comes back as a map in the requested order,
+// which serializes like the entity with the other fields left out. Only whitelisted names ever
+// reach the HQL.
+public final class FieldSet {
+
+    private final List<String> fields;
+    private final String select;
+
+    private FieldSet(List<String> fields, String alias) {
+        this.fields = fields;
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                select.append(", ");
+            }
+            select.append(alias).append('.').append(fields.get(i));
+        }
+        this.select = select.append(' ').toString();
+    }
+
+    // Null when no fields were given (full entities). The required fields are always included,
+    // first, so ids and cursor keys are there whatever the client asked for. Throws
+    // IllegalArgumentException for a field that is not on the whitelist.
+    static FieldSet parse(String spec, String alias, List<String> allowed, String... required) {
+        if (spec == null) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>(List.of(required));
+        for (String field : spec.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            selected.add(name);
+        }
+        return new FieldSet(new ArrayList<>(selected), alias);
+    }
+
+    // "SELECT o.id, o.status " for a query written against the same alias
+    String select() {
+        return select;
+    }
+
+    List<Map<String, Object>> toMaps(List<Object[]> rows) {
+        List<Map<String, Object>> maps = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            maps.add(toMap(row));
+        }
+        return maps;
+    }
+
+    Map<String, Object> toMap(Object[] row) {
+        Map<String, Object> map = new LinkedHashMap<>((int) (fields.size() / 0.75f) + 1);
+        for (int i = 0; i < row.length; i++) {
+            map.put(fields.get(i), row[i]);
+        }
+        return map;
+    }
+}
@@ -7,30 +7,79 @@ import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class MenuItemDAO {
 
+    // Menu writes are tracked as one key: right after a change (and while the snapshot is
+    // rebuilt) menu reads go to the primary
+    private static final String MENU_KEY = "menu";
+
+    // Columns the list endpoints can be narrowed to with ?fields=
+    private static final List<String> FIELDS =
+            List.of("id", "name", "description", "price", "category", "available", "imageUrl");
+
+    // Notified after any menu change commits (used to rebuild cached menu snapshots)
+    private static final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    public static void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    private static void fireMenuChanged() {
+        for (Runnable listener : changeListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     // Get all menu items
     public List<MenuItem> getAllMenuItems() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery("FROM MenuItem", MenuItem.class).list();
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan(MENU_KEY)) {
+            return scan.query("FROM MenuItem", MenuItem.class).list();
+        }
+    }
+
+    // Null for no ?fields= (full entities); IllegalArgumentException for an unknown field
+    public static FieldSet fieldSet(String spec) {
+        return FieldSet.parse(spec, "m", FIELDS, "id");
+    }
+
+    // Get all menu items, selecting only the given fields
+    public List<Map<String, Object>> getAllMenuItems(FieldSet fields) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan(MENU_KEY)) {
+            return fields.toMaps(scan.query(fields.select() + "FROM MenuItem m", Object[].class).list());
         }
     }
 
     // Get menu items by category
     public List<MenuItem> getMenuItemsByCategory(String category) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<MenuItem> query = session.createQuery(
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan(MENU_KEY)) {
+            Query<MenuItem> query = scan.query(
                     "FROM MenuItem WHERE category = :category", MenuItem.class);
             query.setParameter("category", category);
             return query.list();
         }
     }
 
+    // Get menu items by category, selecting only the given fields
+    public List<Map<String, Object>> getMenuItemsByCategory(String category, FieldSet fields) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan(MENU_KEY)) {
+            Query<Object[]> query = scan.query(
+                    fields.select() + "FROM MenuItem m WHERE m.category = :category", Object[].class);
+            query.setParameter("category", category);
+            return fields.toMaps(query.list());
+        }
+    }
+
     // Get available menu items
     public List<MenuItem> getAvailableMenuItems() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<MenuItem> query = session.createQuery(
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan(MENU_KEY)) {
+            Query<MenuItem> query = scan.query(
                     "FROM MenuItem WHERE available = true", MenuItem.class);
             return query.list();
         }
@@ -38,19 +87,28 @@ public class MenuItemDAO {
 
     // Get menu item by ID
     public MenuItem getMenuItemById(int id) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openReadSession(MENU_KEY)) {
             return session.get(MenuItem.class, id);
         }
     }
 
+    // Get menu items for a list of IDs in one round trip. The result lines up with the IDs,
+    // with null where an ID does not exist.
+    public List<MenuItem> getMenuItemsByIds(List<Integer> ids) {
+        try (Session session = HibernateUtil.openReadSession(MENU_KEY)) {
+            return session.byMultipleIds(MenuItem.class)
+                    .withBatchSize(ids.size())
+                    .multiLoad(ids);
+        }
+    }
+
     // Add new menu item
     public boolean addMenuItem(MenuItem menuItem) {
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
             session.save(menuItem);
             transaction.commit();
-            return true;
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
@@ -58,16 +116,19 @@ public class MenuItemDAO {
             e.printStackTrace();
             return false;
         }
+        // Listeners may query the database, so notify only after the session is closed
+        HibernateUtil.recordWrite(MENU_KEY);
+        fireMenuChanged();
+        return true;
     }
 
     // Update menu item
     public boolean updateMenuItem(MenuItem menuItem) {
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
             session.update(menuItem);
             transaction.commit();
-            return true;
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
@@ -75,20 +136,22 @@ public class MenuItemDAO {
             e.printStackTrace();
             return false;
         }
+        HibernateUtil.recordWrite(MENU_KEY);
+        fireMenuChanged();
+        return true;
     }
 
     // Delete menu item
     public boolean deleteMenuItem(int id) {
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
             MenuItem menuItem = session.get(MenuItem.class, id);
-            if (menuItem != null) {
-                session.delete(menuItem);
-                transaction.commit();
-                return true;
+            if (menuItem == null) {
+                return false;
             }
-            return false;
+            session.delete(menuItem);
+            transaction.commit();
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
@@ -96,5 +159,8 @@ public class MenuItemDAO {
             e.printStackTrace();
             return false;
         }
+        HibernateUtil.recordWrite(MENU_KEY);
+        fireMenuChanged();
+        return true;
     }
 }
\ No newline at end of file
@@ -1,44 +1,160 @@
 package com.foodhub.dao;
 
+import com.foodhub.events.OrderEvent;
+import com.foodhub.events.OrderEventBus;
+import com.foodhub.model.Customer;
 import com.foodhub.model.Order;
+import com.foodhub.model.OrderDetail;
 import com.foodhub.model.OrderItem;
+import com.foodhub.model.OrderStatus;
+import com.foodhub.model.OrderStatusChange;
 import com.foodhub.util.HibernateUtil;
+import org.hibernate.LockMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class OrderDAO {
 
+    // MySQL only streams rows one at a time with a fetch size of Integer.MIN_VALUE
+    static final int STREAM_FETCH_SIZE = Integer.getInteger("foodhub.db.streamFetchSize", Integer.MIN_VALUE);
+
+    // Columns the list endpoints can be narrowed to with ?fields=
+    private static final List<String> FIELDS =
+            List.of("id", "customerId", "orderDate", "totalAmount", "status", "deliveryAddress");
+
+    // Null for no ?fields= (full entities); IllegalArgumentException for an unknown field.
+    // The id and order date are always selected, they make up the paging cursor.
+    public static FieldSet fieldSet(String spec) {
+        return FieldSet.parse(spec, "o", FIELDS, "id", "orderDate");
+    }
+
     // Get all orders
     public List<Order> getAllOrders() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery("FROM Order ORDER BY orderDate DESC", Order.class).list();
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan()) {
+            return scan.query("FROM Order ORDER BY orderDate DESC", Order.class).list();
+        }
+    }
+
+    // Get all orders, selecting only the given fields
+    public List<Map<String, Object>> getAllOrders(FieldSet fields) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan()) {
+            return fields.toMaps(scan.query(
+                    fields.select() + "FROM Order o ORDER BY o.orderDate DESC", Object[].class).list());
+        }
+    }
+
+    // Get one page of orders, newest first. Pass a null afterDate for the first page,
+    // otherwise the (orderDate, id) of the last order on the previous page.
+    public List<Order> getOrdersPage(Date afterDate, int afterId, int limit) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan()) {
+            return queryOrdersPage(scan, afterDate, afterId, limit);
+        }
+    }
+
+    // Same page, selecting only the given fields
+    public List<Map<String, Object>> getOrdersPage(Date afterDate, int afterId, int limit, FieldSet fields) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan()) {
+            return fields.toMaps(ordersPageQuery(scan, fields.select(), Object[].class, afterDate, afterId, limit).list());
+        }
+    }
+
+    private static List<Order> queryOrdersPage(HibernateUtil.ReadOnlyScan scan, Date afterDate, int afterId, int limit) {
+        return ordersPageQuery(scan, "", Order.class, afterDate, afterId, limit).list();
+    }
+
+    // Keyset page query; select is empty for whole entities
+    private static <T> Query<T> ordersPageQuery(HibernateUtil.ReadOnlyScan scan, String select, Class<T> type,
+                                                Date afterDate, int afterId, int limit) {
+        Query<T> query;
+        if (afterDate == null) {
+            query = scan.query(
+                    select + "FROM Order o ORDER BY o.orderDate DESC, o.id DESC", type);
+        } else {
+            query = scan.query(
+                    select + "FROM Order o WHERE o.orderDate < :afterDate " +
+                            "OR (o.orderDate = :afterDate AND o.id < :afterId) " +
+                            "ORDER BY o.orderDate DESC, o.id DESC", type);
+            query.setParameter("afterDate", afterDate);
+            query.setParameter("afterId", afterId);
+        }
+        query.setMaxResults(limit);
+        return query;
+    }
+
+    // Stream all orders, newest first, without holding them in memory
+    public void streamAllOrders(Consumer<Order> consumer) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan();
+             ScrollableResults<Order> results = scan.query(
+                             "FROM Order ORDER BY orderDate DESC, id DESC", Order.class)
+                     .setFetchSize(STREAM_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(results.get());
+            }
+        }
+    }
+
+    // Stream all orders, newest first, selecting only the given fields
+    public void streamAllOrders(FieldSet fields, Consumer<Map<String, Object>> consumer) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan();
+             ScrollableResults<Object[]> results = scan.query(
+                             fields.select() + "FROM Order o ORDER BY o.orderDate DESC, o.id DESC", Object[].class)
+                     .setFetchSize(STREAM_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(fields.toMap(results.get()));
+            }
         }
     }
 
     // Get order by ID
     public Order getOrderById(int id) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openReadSession(HibernateUtil.orderKey(id))) {
             return session.get(Order.class, id);
         }
     }
 
+    // Get orders for a list of IDs in one round trip (aligned with the IDs, null if missing)
+    public List<Order> getOrdersByIds(List<Integer> ids) {
+        try (Session session = HibernateUtil.openReadSession(orderKeys(ids))) {
+            return session.byMultipleIds(Order.class)
+                    .withBatchSize(ids.size())
+                    .multiLoad(ids);
+        }
+    }
+
     // Get orders by customer ID
     public List<Order> getOrdersByCustomerId(int customerId) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openReadSession(HibernateUtil.customerKey(customerId))) {
             Query<Order> query = session.createQuery(
                     "FROM Order WHERE customerId = :customerId ORDER BY orderDate DESC", Order.class);
             query.setParameter("customerId", customerId);
+            // Served from the query cache until the next write to the orders table
+            query.setCacheable(true);
+            query.setCacheRegion("orders-by-customer");
             return query.list();
         }
     }
 
     // Get orders by status
     public List<Order> getOrdersByStatus(String status) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<Order> query = session.createQuery(
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan()) {
+            Query<Order> query = scan.query(
                     "FROM Order WHERE status = :status ORDER BY orderDate DESC", Order.class);
             query.setParameter("status", status);
             return query.list();
@@ -48,10 +164,12 @@ public class OrderDAO {
     // Add new order
     public int addOrder(Order order) {
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
             int id = (Integer) session.save(order);
             transaction.commit();
+            recordWrite(order);
+            OrderEventBus.publish(OrderEvent.created(order, new ArrayList<>()));
             return id;
         } catch (Exception e) {
             if (transaction != null) {
@@ -62,45 +180,284 @@ public class OrderDAO {
         }
     }
 
-    // Update order status
-    public boolean updateOrderStatus(int orderId, String status) {
+    // Place an order together with its items in a single transaction.
+    // Ids come from a table generator, so the item inserts go out as one JDBC batch.
+    public int placeOrder(Order order, List<OrderItem> items) {
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
-            Order order = session.get(Order.class, orderId);
-            if (order != null) {
-                order.setStatus(status);
-                session.update(order);
-                transaction.commit();
-                return true;
+            session.persist(order);
+            for (OrderItem item : items) {
+                item.setOrderId(order.getId());
+                session.persist(item);
             }
-            return false;
+            transaction.commit();
+            recordWrite(order);
+            OrderEventBus.publish(OrderEvent.created(order, items));
+            return order.getId();
+        } catch (Exception e) {
+            if (transaction != null && transaction.getStatus().canRollback()) {
+                transaction.rollback();
+            }
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    // Place a group of orders (items.get(i) belongs to orders.get(i)) in one transaction.
+    // Returns the new ids in the same order, or null if the group was rolled back.
+    public List<Integer> placeOrders(List<Order> orders, List<List<OrderItem>> items) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            transaction = session.beginTransaction();
+            for (int i = 0; i < orders.size(); i++) {
+                Order order = orders.get(i);
+                session.persist(order);
+                for (OrderItem item : items.get(i)) {
+                    item.setOrderId(order.getId());
+                    session.persist(item);
+                }
+            }
+            transaction.commit();
+
+            List<Integer> ids = new ArrayList<>(orders.size());
+            for (int i = 0; i < orders.size(); i++) {
+                ids.add(orders.get(i).getId());
+                recordWrite(orders.get(i));
+                OrderEventBus.publish(OrderEvent.created(orders.get(i), items.get(i)));
+            }
+            return ids;
+        } catch (Exception e) {
+            if (transaction != null && transaction.getStatus().canRollback()) {
+                transaction.rollback();
+            }
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Move one order to a new status, under the same locking and transition rules as
+    // updateOrderStatuses. Null if the update failed.
+    public OrderStatusChange updateOrderStatus(int orderId, OrderStatus status) {
+        List<OrderStatusChange> changes = updateOrderStatuses(List.of(orderId), status);
+        return changes == null ? null : changes.get(0);
+    }
+
+    // Move many orders to one status: one locking SELECT to validate the transitions, then one
+    // UPDATE ... WHERE id IN (...) for the orders that may move. Results follow the request order.
+    public List<OrderStatusChange> updateOrderStatuses(List<Integer> orderIds, OrderStatus status) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.openSession()) {
+            transaction = session.beginTransaction();
+
+            // id, status, customerId, orderDate, totalAmount (the rest is only needed for events)
+            Map<Integer, Object[]> rows = new HashMap<>();
+            for (Object[] row : session.createQuery(
+                            "SELECT o.id, o.status, o.customerId, o.orderDate, o.totalAmount " +
+                                    "FROM Order o WHERE o.id IN (:ids)", Object[].class)
+                    .setParameterList("ids", orderIds)
+                    .setHibernateLockMode(LockMode.PESSIMISTIC_WRITE)
+                    .list()) {
+                rows.put((Integer) row[0], row);
+            }
+
+            List<OrderStatusChange> changes = new ArrayList<>(orderIds.size());
+            List<Integer> toUpdate = new ArrayList<>();
+            for (int id : orderIds) {
+                if (!rows.containsKey(id)) {
+                    changes.add(new OrderStatusChange(id, null, null, OrderStatusChange.Result.NOT_FOUND));
+                    continue;
+                }
+                String previous = (String) rows.get(id)[1];
+                OrderStatus from = OrderStatus.parse(previous);
+                if (from == status) {
+                    changes.add(new OrderStatusChange(id, previous, previous, OrderStatusChange.Result.UNCHANGED));
+                } else if (from != null && from.canTransitionTo(status)) {
+                    toUpdate.add(id);
+                    changes.add(new OrderStatusChange(id, previous, status.name(), OrderStatusChange.Result.UPDATED));
+                } else {
+                    changes.add(new OrderStatusChange(id, previous, previous, OrderStatusChange.Result.INVALID_TRANSITION));
+                }
+            }
+
+            if (!toUpdate.isEmpty()) {
+                session.createMutationQuery("UPDATE Order SET status = :status WHERE id IN (:ids)")
+                        .setParameter("status", status.name())
+                        .setParameterList("ids", toUpdate)
+                        .executeUpdate();
+            }
+            transaction.commit();
+
+            for (int id : toUpdate) {
+                Object[] row = rows.get(id);
+                HibernateUtil.recordWrite(HibernateUtil.orderKey(id), HibernateUtil.customerKey((Integer) row[2]));
+                OrderEventBus.publish(OrderEvent.statusChanged(id, (Integer) row[2], (String) row[1],
+                        status.name(), (Date) row[3], (BigDecimal) row[4]));
+            }
+            return changes;
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
             }
             e.printStackTrace();
-            return false;
+            return null;
+        }
+    }
+
+    // Reads about this order or its customer stay on the primary for a while
+    private static void recordWrite(Order order) {
+        HibernateUtil.recordWrite(HibernateUtil.orderKey(order.getId()), HibernateUtil.customerKey(order.getCustomerId()));
+    }
+
+    private static String[] orderKeys(List<Integer> ids) {
+        String[] keys = new String[ids.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = HibernateUtil.orderKey(ids.get(i));
+        }
+        return keys;
+    }
+
+    // Smallest and largest order id, for splitting a full scan into id ranges; null without orders
+    public int[] getOrderIdRange() {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openPrimaryScan()) {
+            Object[] row = scan.query("SELECT min(o.id), max(o.id) FROM Order o", Object[].class)
+                    .getSingleResult();
+            return row[0] == null ? null : new int[] {(Integer) row[0], (Integer) row[1]};
+        }
+    }
+
+    // Stream (orderDate, status, totalAmount) of the orders with fromId <= id <= toId, from the primary
+    public void streamOrderTotals(int fromId, int toId, Consumer<Object[]> consumer) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openPrimaryScan();
+             ScrollableResults<Object[]> results = scan.query(
+                             "SELECT o.orderDate, o.status, o.totalAmount FROM Order o " +
+                                     "WHERE o.id BETWEEN :fromId AND :toId", Object[].class)
+                     .setParameter("fromId", fromId)
+                     .setParameter("toId", toId)
+                     .setFetchSize(STREAM_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(results.get());
+            }
+        }
+    }
+
+    // Stream (orderDate, status, menuItemId, quantity, subtotal) of the items of the same orders
+    public void streamOrderLines(int fromId, int toId, Consumer<Object[]> consumer) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openPrimaryScan();
+             ScrollableResults<Object[]> results = scan.query(
+                             "SELECT o.orderDate, o.status, oi.menuItemId, oi.quantity, oi.subtotal " +
+                                     "FROM OrderItem oi JOIN Order o ON o.id = oi.orderId " +
+                                     "WHERE o.id BETWEEN :fromId AND :toId", Object[].class)
+                     .setParameter("fromId", fromId)
+                     .setParameter("toId", toId)
+                     .setFetchSize(STREAM_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(results.get());
+            }
+        }
+    }
+
+    // Items of several orders in one query, from the primary
+    public List<OrderItem> getOrderItemsByOrderIds(Collection<Integer> orderIds) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openPrimaryScan()) {
+            return scan.query("FROM OrderItem WHERE orderId IN (:orderIds)", OrderItem.class)
+                    .setParameterList("orderIds", orderIds)
+                    .list();
         }
     }
 
     // Get order items for an order
     public List<OrderItem> getOrderItems(int orderId) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<OrderItem> query = session.createQuery(
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan(HibernateUtil.orderKey(orderId))) {
+            Query<OrderItem> query = scan.query(
                     "FROM OrderItem WHERE orderId = :orderId", OrderItem.class);
             query.setParameter("orderId", orderId);
             return query.list();
         }
     }
 
+    // Get an order with its customer and items (with menu names) in one query.
+    // The entities have no mapped associations, so this uses ad hoc entity joins.
+    public OrderDetail getOrderDetail(int orderId) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan(HibernateUtil.orderKey(orderId))) {
+            List<Object[]> rows = scan.query(
+                    "SELECT o, c, oi, m.name FROM Order o " +
+                            "LEFT JOIN Customer c ON c.id = o.customerId " +
+                            "LEFT JOIN OrderItem oi ON oi.orderId = o.id " +
+                            "LEFT JOIN MenuItem m ON m.id = oi.menuItemId " +
+                            "WHERE o.id = :orderId ORDER BY oi.id", Object[].class)
+                    .setParameter("orderId", orderId)
+                    .list();
+            if (rows.isEmpty()) {
+                return null;
+            }
+            OrderDetail detail = new OrderDetail((Order) rows.get(0)[0], (Customer) rows.get(0)[1]);
+            for (Object[] row : rows) {
+                if (row[2] != null) {
+                    detail.getItems().add(new OrderDetail.Item((OrderItem) row[2], (String) row[3]));
+                }
+            }
+            return detail;
+        }
+    }
+
+    // Get details for a page of orders (same keyset order as getOrdersPage).
+    // Always three queries: the page, its customers and all of its items, loaded with IN lists.
+    public List<OrderDetail> getOrderDetailsPage(Date afterDate, int afterId, int limit) {
+        try (HibernateUtil.ReadOnlyScan scan = HibernateUtil.openScan()) {
+            List<Order> orders = queryOrdersPage(scan, afterDate, afterId, limit);
+            if (orders.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            Map<Integer, OrderDetail> details = new LinkedHashMap<>();
+            Set<Integer> customerIds = new HashSet<>();
+            for (Order order : orders) {
+                details.put(order.getId(), new OrderDetail(order, null));
+                customerIds.add(order.getCustomerId());
+            }
+
+            Map<Integer, Customer> customers = new HashMap<>();
+            for (Customer customer : scan.query(
+                            "FROM Customer WHERE id IN (:ids)", Customer.class)
+                    .setParameterList("ids", customerIds)
+                    .list()) {
+                customers.put(customer.getId(), customer);
+            }
+
+            List<Object[]> itemRows = scan.query(
+                    "SELECT oi, m.name FROM OrderItem oi " +
+                            "LEFT JOIN MenuItem m ON m.id = oi.menuItemId " +
+                            "WHERE oi.orderId IN (:orderIds) ORDER BY oi.id", Object[].class)
+                    .setParameterList("orderIds", details.keySet())
+                    .list();
+
+            for (OrderDetail detail : details.values()) {
+                detail.setCustomer(customers.get(detail.getOrder().getCustomerId()));
+            }
+            for (Object[] row : itemRows) {
+                OrderItem item = (OrderItem) row[0];
+                details.get(item.getOrderId()).getItems().add(new OrderDetail.Item(item, (String) row[1]));
+            }
+            return new ArrayList<>(details.values());
+        }
+    }
+
     // Add order item
     public boolean addOrderItem(OrderItem orderItem) {
         Transaction transaction = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = HibernateUtil.openSession()) {
             transaction = session.beginTransaction();
             session.save(orderItem);
+            // Read in the same transaction so the event carries the order's date and status
+            Order order = session.get(Order.class, orderItem.getOrderId());
             transaction.commit();
+            HibernateUtil.recordWrite(HibernateUtil.orderKey(orderItem.getOrderId()));
+            if (order != null) {
+                OrderEventBus.publish(OrderEvent.itemAdded(order, orderItem));
+            }
             return true;
         } catch (Exception e) {
             if (transaction != null) {
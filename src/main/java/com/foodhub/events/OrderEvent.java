@@ -0,0 +1,70 @@
+package com.foodhub.events;
+
+import com.foodhub.model.Order;
+import com.foodhub.model.OrderItem;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+// A committed change to an order, as published on the OrderEventBus
+public class OrderEvent {
+
+    public enum Type {
+        ORDER_CREATED,
+        STATUS_CHANGED,
+        ITEM_ADDED
+    }
+
+    private long sequence;
+    private final Type type;
+    private final int orderId;
+    private final int customerId;
+    private final String previousStatus;
+    private final String status;
+    private final Date orderDate;
+    private final BigDecimal totalAmount;
+    private final List<OrderItem> items; // ORDER_CREATED: all items, ITEM_ADDED: the new one
+    private final long timestamp = System.currentTimeMillis();
+
+    private OrderEvent(Type type, int orderId, int customerId, String previousStatus, String status,
+                       Date orderDate, BigDecimal totalAmount, List<OrderItem> items) {
+        this.type = type;
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.orderDate = orderDate;
+        this.totalAmount = totalAmount;
+        this.items = items;
+    }
+
+    public static OrderEvent created(Order order, List<OrderItem> items) {
+        return new OrderEvent(Type.ORDER_CREATED, order.getId(), order.getCustomerId(), null, order.getStatus(),
+                order.getOrderDate(), order.getTotalAmount(), items);
+    }
+
+    public static OrderEvent statusChanged(int orderId, int customerId, String previousStatus, String status,
+                                           Date orderDate, BigDecimal totalAmount) {
+        return new OrderEvent(Type.STATUS_CHANGED, orderId, customerId, previousStatus, status,
+                orderDate, totalAmount, null);
+    }
+
+    public static OrderEvent itemAdded(Order order, OrderItem item) {
+        return new OrderEvent(Type.ITEM_ADDED, order.getId(), order.getCustomerId(), null, order.getStatus(),
+                order.getOrderDate(), order.getTotalAmount(), List.of(item));
+    }
+
+    void setSequence(long sequence) { this.sequence = sequence; }
+
+    public long getSequence() { return sequence; }
+    public Type getType() { return type; }
+    public int getOrderId() { return orderId; }
+    public int getCustomerId() { return customerId; }
+    public String getPreviousStatus() { return previousStatus; }
+    public String getStatus() { return status; }
+    public Date getOrderDate() { return orderDate; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public List<OrderItem> getItems() { return items; }
+    public long getTimestamp() { return timestamp; }
+}
@@ -0,0 +1,131 @@
+package com.foodhub.events;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-process fan-out of committed order changes.
+ *
+ * Publishing never blocks: every subscription has a bounded buffer, and a subscriber that lets
+ * its buffer fill up is evicted rather than slowing down the request that made the change.
+ * Listeners run synchronously on the publishing thread and must be cheap.
+ */
+public final class OrderEventBus {
+
+    private static final int BUFFER_SIZE = Integer.getInteger("foodhub.events.bufferSize", 256);
+    private static final int MAX_SUBSCRIBERS = Integer.getInteger("foodhub.events.maxSubscribers", 1_000);
+
+    private static final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private static final List<Consumer<OrderEvent>> listeners = new CopyOnWriteArrayList<>();
+    private static final AtomicLong sequence = new AtomicLong();
+    private static final LongAdder evicted = new LongAdder();
+
+    private OrderEventBus() {
+    }
+
+    public static void publish(OrderEvent event) {
+        event.setSequence(sequence.incrementAndGet());
+        for (Consumer<OrderEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    public static void addListener(Consumer<OrderEvent> listener) {
+        listeners.add(listener);
+    }
+
+    // Null when the subscriber limit is reached
+    public static Subscription subscribe(Predicate<OrderEvent> filter) {
+        if (subscriptions.size() >= MAX_SUBSCRIBERS) {
+            return null;
+        }
+        Subscription subscription = new Subscription(filter, BUFFER_SIZE);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    // Events matching the optional customer id and status set (null means any)
+    public static Predicate<OrderEvent> filter(Integer customerId, Set<String> statuses) {
+        return event -> (customerId == null || event.getCustomerId() == customerId)
+                && (statuses == null || statuses.contains(event.getStatus()));
+    }
+
+    // Ends every subscription, e.g. so open streams finish during shutdown
+    public static void closeAll() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscriptions.size());
+        stats.put("published", sequence.get());
+        stats.put("evicted", evicted.sum());
+        return stats;
+    }
+
+    public static final class Subscription implements AutoCloseable {
+        private final Predicate<OrderEvent> filter;
+        private final BlockingQueue<OrderEvent> buffer;
+        private volatile boolean closed;
+        private volatile boolean evictedForLag;
+
+        private Subscription(Predicate<OrderEvent> filter, int capacity) {
+            this.filter = filter;
+            this.buffer = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void offer(OrderEvent event) {
+            if (closed || !filter.test(event)) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                evictedForLag = true;
+                evicted.increment();
+                close();
+            }
+        }
+
+        // Next event, or null on timeout or once the subscription is closed and drained
+        public OrderEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+            OrderEvent event = buffer.poll();
+            if (event != null || closed) {
+                return event;
+            }
+            return buffer.poll(timeout, unit);
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        // True if the subscription was dropped because its consumer fell behind
+        public boolean isEvicted() {
+            return evictedForLag;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+        }
+    }
+}
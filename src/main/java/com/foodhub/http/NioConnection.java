@@ -0,0 +1,458 @@
+package com.foodhub.http;
+
+import com.sun.net.httpserver.Headers;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One client connection.
+ *
+ * The connection is owned by its selector thread while it waits for a request, and by an executor
+ * thread while a request is being handled; the read buffer is only touched by the current owner.
+ * The handler thread writes the response straight to the non-blocking channel and parks whenever
+ * the socket buffer is full until the selector reports it writable again. When the response is
+ * complete, any pipelined request already in the buffer is handled on the same thread; otherwise
+ * the connection goes back to its selector.
+ */
+final class NioConnection {
+
+    private enum State {
+        READING,
+        PROCESSING,
+        CLOSED
+    }
+
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] NO_BODY = new byte[0];
+    private static final int CLOSE_SILENTLY = -1; // BadRequest status: close without a reply
+
+    private final NioHttpServer server;
+    private final SelectorLoop loop;
+    private final SocketChannel channel;
+    private SelectionKey key;
+
+    private volatile State state = State.READING;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long lastActivity = System.nanoTime();
+    private int served;
+
+    // Unparsed input, in write mode; null while there is none
+    private ByteBuffer in;
+    private int scanned;
+
+    // Request being parsed
+    private String method;
+    private URI uri;
+    private String protocol;
+    private Headers headers;
+    private byte[] body;
+    private int bodyFilled;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition writable = writeLock.newCondition();
+    private boolean writeReady;
+
+    NioConnection(NioHttpServer server, SelectorLoop loop, SocketChannel channel) {
+        this.server = server;
+        this.loop = loop;
+        this.channel = channel;
+    }
+
+    void attach(SelectionKey key) {
+        this.key = key;
+    }
+
+    BufferPool buffers() {
+        return server.buffers();
+    }
+
+    InetSocketAddress remoteAddress() {
+        try {
+            return (InetSocketAddress) channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    InetSocketAddress localAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    //     Selector thread
+
+    void onReadable() {
+        if (state != State.READING) {
+            return;
+        }
+        if (in == null) {
+            in = server.buffers().acquire();
+        }
+        int read;
+        try {
+            read = channel.read(in);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (read < 0) {
+            close();
+            return;
+        }
+        lastActivity = System.nanoTime();
+
+        NioHttpExchange exchange;
+        try {
+            exchange = nextRequest();
+        } catch (BadRequest e) {
+            reject(e);
+            return;
+        }
+        if (exchange != null) {
+            state = State.PROCESSING;
+            key.interestOps(0);
+            try {
+                server.dispatch(() -> serve(exchange));
+            } catch (RejectedExecutionException e) {
+                if (!server.isRunning()) {
+                    close(); // executor already shut down
+                    return;
+                }
+                // Saturated: answer from here rather than run the handler on the selector
+                server.overloadedRequests.increment();
+                respondAndClose(503, "Server is busy, please retry", "Retry-After: 1\r\n");
+            }
+        }
+    }
+
+    void onWritable() {
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        writeLock.lock();
+        try {
+            writeReady = true;
+            writable.signalAll();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void closeIfIdle(long now) {
+        if (state == State.READING && now - lastActivity > TimeUnit.MILLISECONDS.toNanos(server.idleTimeoutMillis())) {
+            server.idleTimeouts.increment();
+            close();
+        }
+    }
+
+    private void resumeReading() {
+        if (state == State.READING && key.isValid()) {
+            lastActivity = System.nanoTime();
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    //     Handler thread
+
+    // Handle the exchange and every complete request pipelined behind it
+    private void serve(NioHttpExchange exchange) {
+        while (true) {
+            server.requests.increment();
+            if (served++ > 0) {
+                server.keepAliveRequests.increment();
+            }
+            boolean reusable;
+            try {
+                server.handle(exchange);
+                reusable = exchange.finish();
+            } catch (Throwable e) {
+                if (!(e instanceof IOException)) {
+                    e.printStackTrace();
+                }
+                reusable = exchange.fail();
+            }
+            if (!reusable || !server.isRunning()) {
+                close();
+                return;
+            }
+
+            try {
+                exchange = nextRequest();
+            } catch (BadRequest e) {
+                reject(e);
+                return;
+            }
+            if (exchange == null) {
+                state = State.READING;
+                loop.execute(this::resumeReading);
+                return;
+            }
+            server.pipelinedRequests.increment();
+        }
+    }
+
+    // Write every buffer completely, waiting for the socket to drain when it is full
+    void write(ByteBuffer... buffers) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            long written = channel.write(buffers);
+            remaining -= written;
+            if (written == 0) {
+                awaitWritable();
+            }
+        }
+        lastActivity = System.nanoTime();
+    }
+
+    private void awaitWritable() throws IOException {
+        if (loop.inLoop()) {
+            // Only short replies (errors, 100 Continue) are written on the selector thread. It
+            // must never wait for a client that stops reading, so the write fails instead and the
+            // caller closes the connection.
+            throw new IOException("Socket buffer full on the selector thread");
+        }
+
+        long remaining = TimeUnit.MILLISECONDS.toNanos(server.idleTimeoutMillis());
+        writeLock.lock();
+        try {
+            writeReady = false;
+            loop.execute(() -> {
+                if (key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            });
+            while (!writeReady) {
+                if (state == State.CLOSED) {
+                    throw new ClosedChannelException();
+                }
+                if (remaining <= 0) {
+                    throw new SocketTimeoutException("Write timed out");
+                }
+                remaining = writable.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //     Parsing (current owner only)
+
+    // The next complete request in the buffer, or null if more input is needed
+    private NioHttpExchange nextRequest() throws BadRequest {
+        if (in == null) {
+            return null;
+        }
+        try {
+            if (headers == null) {
+                int end = headerEnd();
+                if (end < 0) {
+                    if (!in.hasRemaining()) {
+                        throw new BadRequest(431, "Request header too large");
+                    }
+                    return null;
+                }
+                parseHead(end);
+            }
+            if (bodyFilled < body.length) {
+                int available = Math.min(in.position(), body.length - bodyFilled);
+                in.flip();
+                in.get(body, bodyFilled, available);
+                in.compact();
+                bodyFilled += available;
+            }
+            if (bodyFilled < body.length) {
+                return null;
+            }
+
+            boolean keepAlive = keepAlive(protocol, headers.getFirst("Connection"));
+            NioHttpExchange exchange = new NioHttpExchange(this, method, uri, protocol, headers, body, keepAlive);
+            headers = null;
+            body = null;
+            return exchange;
+        } finally {
+            if (in.position() == 0) {
+                server.buffers().release(in);
+                in = null;
+                scanned = 0;
+            }
+        }
+    }
+
+    // Offset just past the blank line that ends the header block, or -1
+    private int headerEnd() {
+        int limit = in.position();
+        for (int i = Math.max(3, scanned); i < limit; i++) {
+            if (in.get(i) == '\n' && in.get(i - 1) == '\r' && in.get(i - 2) == '\n' && in.get(i - 3) == '\r') {
+                scanned = 0;
+                return i + 1;
+            }
+        }
+        scanned = limit;
+        return -1;
+    }
+
+    private void parseHead(int end) throws BadRequest {
+        byte[] head = new byte[end];
+        in.flip();
+        in.get(head);
+        in.compact();
+
+        String text = new String(head, 0, end - 4, StandardCharsets.ISO_8859_1);
+        int start = 0;
+        while (text.startsWith("\r\n", start)) {
+            start += 2; // stray empty lines before a pipelined request
+        }
+        int lineEnd = text.indexOf("\r\n", start);
+        String requestLine = text.substring(start, lineEnd < 0 ? text.length() : lineEnd);
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3 || !parts[2].startsWith("HTTP/1.")) {
+            throw new BadRequest(400, "Malformed request line");
+        }
+        method = parts[0];
+        protocol = parts[2];
+        try {
+            uri = new URI(parts[1]);
+        } catch (URISyntaxException e) {
+            throw new BadRequest(400, "Malformed request target");
+        }
+
+        headers = new Headers();
+        while (lineEnd >= 0) {
+            int next = text.indexOf("\r\n", lineEnd + 2);
+            String line = text.substring(lineEnd + 2, next < 0 ? text.length() : next);
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new BadRequest(400, "Malformed header");
+            }
+            headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            lineEnd = next;
+        }
+
+        String transferEncoding = headers.getFirst("Transfer-Encoding");
+        if (transferEncoding != null && !"identity".equalsIgnoreCase(transferEncoding)) {
+            throw new BadRequest(501, "Chunked request bodies are not supported");
+        }
+        long length = 0;
+        String contentLength = headers.getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                length = Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                throw new BadRequest(400, "Invalid Content-Length");
+            }
+        }
+        if (length < 0) {
+            throw new BadRequest(400, "Invalid Content-Length");
+        }
+        if (length > server.maxBodyBytes()) {
+            throw new BadRequest(413, "Request body too large");
+        }
+        body = length == 0 ? NO_BODY : new byte[(int) length];
+        bodyFilled = 0;
+
+        if (length > in.position() && "100-continue".equalsIgnoreCase(headers.getFirst("Expect"))) {
+            try {
+                write(ByteBuffer.wrap(CONTINUE));
+            } catch (IOException e) {
+                // Possibly half written, so the connection cannot carry a response any more
+                throw new BadRequest(CLOSE_SILENTLY, e.getMessage());
+            }
+        }
+    }
+
+    private static boolean keepAlive(String protocol, String connection) {
+        if ("HTTP/1.0".equals(protocol)) {
+            return connection != null && connection.equalsIgnoreCase("keep-alive");
+        }
+        return connection == null || !connection.toLowerCase().contains("close");
+    }
+
+    // Answer a request that could not be parsed and drop the connection
+    private void reject(BadRequest e) {
+        server.rejectedRequests.increment();
+        if (e.status == CLOSE_SILENTLY) {
+            close();
+            return;
+        }
+        respondAndClose(e.status, e.getMessage(), "");
+    }
+
+    // A small JSON error written from the selector thread, then the connection is closed
+    private void respondAndClose(int status, String error, String extraHeaders) {
+        byte[] message = ("{\"error\":\"" + error + "\"}").getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + " " + NioHttpExchange.reason(status) + "\r\n"
+                + "Content-Type: application/json; charset=UTF-8\r\n"
+                + "Content-Length: " + message.length + "\r\n"
+                + extraHeaders
+                + "Connection: close\r\n\r\n";
+        try {
+            write(ByteBuffer.wrap(head.getBytes(StandardCharsets.ISO_8859_1)), ByteBuffer.wrap(message));
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+        close();
+    }
+
+    //     Lifecycle
+
+    // Called by the owner; returns the read buffer to the pool
+    void close() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        if (in != null) {
+            server.buffers().release(in);
+            in = null;
+        }
+        abort();
+    }
+
+    // Close without touching the buffers (server shutdown, from any thread)
+    void abort() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        state = State.CLOSED;
+        if (key != null) {
+            key.cancel();
+        }
+        NioHttpServer.closeQuietly(channel);
+        server.connectionClosed();
+        writeLock.lock();
+        try {
+            writable.signalAll();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static final class BadRequest extends Exception {
+        final int status;
+
+        BadRequest(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.foodhub.http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HttpExchange for one request on an NioConnection, so handlers written for the JDK server run
+ * unchanged. The request body has already been read into memory. The response follows the JDK
+ * contract: sendResponseHeaders(code, n) with n > 0 sends a fixed length, 0 a chunked body and -1
+ * no body at all. Response headers are held back and go out with the first body bytes.
+ */
+final class NioHttpExchange extends HttpExchange {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+    private static volatile long dateSecond;
+    private static volatile String date;
+
+    private final NioConnection connection;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final ResponseStream responseStream = new ResponseStream();
+    private InputStream requestBody;
+    private OutputStream responseBody = responseStream;
+    private HttpContext context;
+    private Map<String, Object> attributes;
+
+    private boolean keepAlive;
+    private int responseCode = -1;
+
+    NioHttpExchange(NioConnection connection, String method, URI uri, String protocol,
+                    Headers requestHeaders, byte[] body, boolean keepAlive) {
+        this.connection = connection;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = new ByteArrayInputStream(body);
+        this.keepAlive = keepAlive;
+    }
+
+    void setContext(HttpContext context) {
+        this.context = context;
+    }
+
+    // Complete the response after the handler returned; true if the connection can be reused
+    boolean finish() throws IOException {
+        if (responseCode < 0) {
+            return false; // the handler never answered, so the client gets a closed connection
+        }
+        responseStream.close();
+        return keepAlive && !responseStream.truncated;
+    }
+
+    // The handler failed: answer 500 if nothing was sent yet, otherwise the connection is unusable
+    boolean fail() {
+        if (responseCode >= 0) {
+            responseStream.release();
+            return false;
+        }
+        try {
+            responseHeaders.clear();
+            sendResponseHeaders(500, -1);
+            return finish();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        try {
+            requestBody.close();
+            if (responseCode >= 0) {
+                responseStream.close();
+            }
+        } catch (IOException e) {
+            keepAlive = false;
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int code, long length) throws IOException {
+        if (responseCode >= 0) {
+            throw new IOException("Response headers already sent");
+        }
+        responseCode = code;
+
+        String connectionHeader = responseHeaders.getFirst("Connection");
+        if (connectionHeader != null && connectionHeader.equalsIgnoreCase("close")) {
+            keepAlive = false;
+        }
+
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(code).append(' ').append(reason(code)).append("\r\n");
+        head.append("Date: ").append(currentDate()).append("\r\n");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            String name = header.getKey();
+            if (name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Transfer-Encoding")
+                    || name.equalsIgnoreCase("Connection")) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                head.append(name).append(": ").append(value).append("\r\n");
+            }
+        }
+
+        boolean noBody = length < 0 || code == 204 || code == 304 || "HEAD".equals(method);
+        if (code == 204 || code == 304) {
+            // No framing headers at all
+        } else if (length < 0) {
+            head.append("Content-Length: 0\r\n");
+        } else if (length == 0) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        } else {
+            head.append("Content-Length: ").append(length).append("\r\n");
+        }
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        } else if ("HTTP/1.0".equals(protocol)) {
+            head.append("Connection: keep-alive\r\n");
+        }
+        head.append("\r\n");
+
+        responseStream.begin(head.toString().getBytes(StandardCharsets.ISO_8859_1), noBody ? -1 : length);
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.remoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.localAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes == null ? null : attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream in, OutputStream out) {
+        if (in != null) {
+            requestBody = in;
+        }
+        if (out != null) {
+            responseBody = out;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    static String reason(int code) {
+        switch (code) {
+            case 100: return "Continue";
+            case 200: return "OK";
+            case 201: return "Created";
+            case 202: return "Accepted";
+            case 204: return "No Content";
+            case 206: return "Partial Content";
+            case 301: return "Moved Permanently";
+            case 302: return "Found";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 401: return "Unauthorized";
+            case 403: return "Forbidden";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 409: return "Conflict";
+            case 411: return "Length Required";
+            case 413: return "Payload Too Large";
+            case 422: return "Unprocessable Entity";
+            case 429: return "Too Many Requests";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 501: return "Not Implemented";
+            case 503: return "Service Unavailable";
+            default: return "Status";
+        }
+    }
+
+    // RFC 1123 date, formatted at most once a second
+    private static String currentDate() {
+        long second = System.currentTimeMillis() / 1_000;
+        String current = date;
+        if (current == null || second != dateSecond) {
+            current = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+            date = current;
+            dateSecond = second;
+        }
+        return current;
+    }
+
+    // Buffers body bytes in a pooled buffer and writes them, framed, when it fills up, on flush()
+    // and on close(). The held-back response head goes out in the same write.
+    private final class ResponseStream extends OutputStream {
+        private byte[] head;
+        private ByteBuffer buffer;
+        private long remaining;      // bytes still owed for a fixed length, -1 for chunked
+        private boolean discard;     // no body (-1, HEAD, 204/304): body bytes are dropped
+        private boolean started;
+        private boolean closed;
+        private boolean truncated;   // fewer bytes than the announced Content-Length
+
+        void begin(byte[] head, long length) {
+            this.head = head;
+            this.remaining = length == 0 ? -1 : Math.max(0, length);
+            this.discard = length < 0;
+            this.started = true;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (!started) {
+                throw new IOException("Response headers not sent yet");
+            }
+            if (closed) {
+                throw new IOException("Response stream closed");
+            }
+            if (discard) {
+                return;
+            }
+            if (remaining >= 0) {
+                if (length > remaining) {
+                    throw new IOException("Too many bytes for the announced Content-Length");
+                }
+                remaining -= length;
+            }
+            while (length > 0) {
+                if (buffer == null) {
+                    buffer = connection.buffers().acquire();
+                }
+                int chunk = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+                if (!buffer.hasRemaining()) {
+                    send(false);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (started && !closed) {
+                send(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!started || closed) {
+                return;
+            }
+            closed = true;
+            try {
+                send(!discard && remaining < 0);
+                truncated = remaining > 0;
+            } finally {
+                release();
+            }
+        }
+
+        void release() {
+            if (buffer != null) {
+                connection.buffers().release(buffer);
+                buffer = null;
+            }
+        }
+
+        private void send(boolean lastChunk) throws IOException {
+            boolean hasData = buffer != null && buffer.position() > 0;
+            if (head == null && !hasData && !lastChunk) {
+                return;
+            }
+            ByteBuffer[] parts = new ByteBuffer[5];
+            int count = 0;
+            if (head != null) {
+                parts[count++] = ByteBuffer.wrap(head);
+                head = null;
+            }
+            if (hasData) {
+                buffer.flip();
+                if (remaining < 0) {
+                    parts[count++] = ByteBuffer.wrap((Integer.toHexString(buffer.remaining()) + "\r\n")
+                            .getBytes(StandardCharsets.ISO_8859_1));
+                    parts[count++] = buffer;
+                    parts[count++] = ByteBuffer.wrap(CRLF);
+                } else {
+                    parts[count++] = buffer;
+                }
+            }
+            if (lastChunk) {
+                parts[count++] = ByteBuffer.wrap(LAST_CHUNK);
+            }
+            try {
+                connection.write(Arrays.copyOf(parts, count));
+            } finally {
+                if (buffer != null) {
+                    buffer.clear();
+                }
+            }
+        }
+    }
+}
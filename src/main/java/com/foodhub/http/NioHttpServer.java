@@ -0,0 +1,366 @@
+package com.foodhub.http;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HttpServer implementation on non-blocking NIO selectors.
+ *
+ * One thread accepts connections and hands them round-robin to a few selector threads, which do
+ * all socket reads and parse requests out of pooled direct buffers. Complete requests run on the
+ * executor set with setExecutor(), exactly like on the JDK server, so existing handlers work
+ * unchanged. Connections are persistent (HTTP/1.1 keep-alive) and pipelined requests are answered
+ * in order: while one request is being handled, the next is left in the buffer.
+ *
+ * Configured with system properties:
+ *   foodhub.http.selectors          selector threads (default half the cores, at least 1)
+ *   foodhub.http.bufferSize         pooled buffer size, also the header size limit (default 16 KB)
+ *   foodhub.http.maxPooledBuffers   buffers kept for reuse (default 1024)
+ *   foodhub.http.idleTimeoutMillis  close idle connections and stalled writes after this (default 30 s)
+ *   foodhub.http.maxBodyBytes       largest accepted request body (default 1 MB)
+ *
+ * Request bodies must carry a Content-Length; chunked request bodies are rejected with 501.
+ */
+public class NioHttpServer extends HttpServer {
+
+    private final int selectorCount = Math.max(1, Integer.getInteger("foodhub.http.selectors",
+            Runtime.getRuntime().availableProcessors() / 2));
+    private final long idleTimeoutMillis = Integer.getInteger("foodhub.http.idleTimeoutMillis", 30_000);
+    private final int maxBodyBytes = Integer.getInteger("foodhub.http.maxBodyBytes", 1024 * 1024);
+    private final BufferPool buffers = new BufferPool(
+            Integer.getInteger("foodhub.http.bufferSize", 16 * 1024),
+            Integer.getInteger("foodhub.http.maxPooledBuffers", 1024));
+
+    private final List<Context> contexts = new CopyOnWriteArrayList<>();
+    private ServerSocketChannel serverChannel;
+    private volatile Executor executor;
+    private SelectorLoop[] loops;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger activeExchanges = new AtomicInteger();
+    final LongAdder accepted = new LongAdder();
+    final LongAdder requests = new LongAdder();
+    final LongAdder keepAliveRequests = new LongAdder();
+    final LongAdder pipelinedRequests = new LongAdder();
+    final LongAdder idleTimeouts = new LongAdder();
+    final LongAdder rejectedRequests = new LongAdder();
+    final LongAdder overloadedRequests = new LongAdder();
+
+    // Same contract as HttpServer.create(address, backlog)
+    public static NioHttpServer create(InetSocketAddress address, int backlog) throws IOException {
+        NioHttpServer server = new NioHttpServer();
+        if (address != null) {
+            server.bind(address, backlog);
+        }
+        return server;
+    }
+
+    @Override
+    public void bind(InetSocketAddress address, int backlog) throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Server already bound");
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        channel.bind(address, backlog);
+        serverChannel = channel;
+    }
+
+    @Override
+    public void start() {
+        if (serverChannel == null || running) {
+            throw new IllegalStateException("Server not bound or already started");
+        }
+        running = true;
+        loops = new SelectorLoop[selectorCount];
+        try {
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new SelectorLoop(this, i);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open selector", e);
+        }
+        for (SelectorLoop loop : loops) {
+            loop.start();
+        }
+        // Not a daemon: like the JDK dispatcher thread, it keeps the JVM alive until stop()
+        acceptor = new Thread(this::acceptLoop, "foodhub-nio-acceptor");
+        acceptor.start();
+    }
+
+    // Blocking accept; the selector threads never see the server socket
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    e.printStackTrace();
+                }
+                continue;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                closeQuietly(channel);
+                continue;
+            }
+            accepted.increment();
+            loops[next].register(channel);
+            next = (next + 1) % loops.length;
+        }
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    // Stops accepting at once, then waits up to delaySeconds for running exchanges before closing
+    // every connection
+    @Override
+    public void stop(int delaySeconds) {
+        if (!running) {
+            return;
+        }
+        running = false;
+        closeQuietly(serverChannel);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, delaySeconds));
+        while (activeExchanges.get() > 0 && System.nanoTime() - deadline < 0) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (SelectorLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        Context context = (Context) createContext(path);
+        context.setHandler(handler);
+        return context;
+    }
+
+    @Override
+    public HttpContext createContext(String path) {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("Invalid context path: " + path);
+        }
+        for (Context context : contexts) {
+            if (context.path.equals(path)) {
+                throw new IllegalArgumentException("Context already exists: " + path);
+            }
+        }
+        Context context = new Context(path);
+        contexts.add(context);
+        return context;
+    }
+
+    @Override
+    public void removeContext(String path) {
+        if (!contexts.removeIf(context -> context.path.equals(path))) {
+            throw new IllegalArgumentException("No context: " + path);
+        }
+    }
+
+    @Override
+    public void removeContext(HttpContext context) {
+        contexts.remove(context);
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        try {
+            return serverChannel == null ? null : (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    BufferPool buffers() {
+        return buffers;
+    }
+
+    long idleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    int maxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    void connectionOpened() {
+        openConnections.incrementAndGet();
+    }
+
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    // Run the exchange on the configured executor (or a thread of its own when there is none).
+    // Never on the selector thread itself: an executor that would run it inline when saturated
+    // (CallerRunsPolicy) counts as a rejection, because every connection on the selector would
+    // wait behind the handler.
+    void dispatch(Runnable exchange) {
+        Executor current = executor;
+        if (current == null) {
+            new Thread(exchange, "foodhub-nio-exchange").start();
+            return;
+        }
+        Thread selector = Thread.currentThread();
+        current.execute(() -> {
+            if (Thread.currentThread() == selector) {
+                throw new RejectedExecutionException("Executor is saturated");
+            }
+            exchange.run();
+        });
+    }
+
+    // Longest matching context path wins, as on the JDK server; 404 when nothing matches
+    void handle(HttpExchange exchange) throws IOException {
+        activeExchanges.incrementAndGet();
+        try {
+            Context match = null;
+            String path = exchange.getRequestURI().getPath();
+            for (Context context : contexts) {
+                if (path != null && path.startsWith(context.path)
+                        && (match == null || context.path.length() > match.path.length())) {
+                    match = context;
+                }
+            }
+            if (match == null || match.handler == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            ((NioHttpExchange) exchange).setContext(match);
+            new Filter.Chain(match.filters, match.handler).doFilter(exchange);
+        } finally {
+            activeExchanges.decrementAndGet();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("engine", "nio");
+        stats.put("selectors", selectorCount);
+        stats.put("openConnections", openConnections.get());
+        stats.put("activeExchanges", activeExchanges.get());
+        stats.put("accepted", accepted.sum());
+        stats.put("requests", requests.sum());
+        stats.put("keepAliveRequests", keepAliveRequests.sum());
+        stats.put("pipelinedRequests", pipelinedRequests.sum());
+        stats.put("rejectedRequests", rejectedRequests.sum());
+        stats.put("overloadedRequests", overloadedRequests.sum());
+        stats.put("idleTimeouts", idleTimeouts.sum());
+        stats.put("buffers", buffers.snapshot());
+        return stats;
+    }
+
+    static void closeQuietly(java.io.Closeable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException ignored) {
+            // Nothing useful to do
+        }
+    }
+
+    private final class Context extends HttpContext {
+        private final String path;
+        private final Map<String, Object> attributes = new HashMap<>();
+        private final List<Filter> filters = new ArrayList<>();
+        private volatile HttpHandler handler;
+
+        Context(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            if (this.handler != null) {
+                throw new IllegalArgumentException("Handler already set");
+            }
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public HttpServer getServer() {
+            return NioHttpServer.this;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        // Refused rather than silently ignored
+        @Override
+        public Authenticator setAuthenticator(Authenticator authenticator) {
+            throw new UnsupportedOperationException("Authenticators are not supported by the NIO engine");
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.foodhub.http;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// One selector thread: owns the selector, performs socket reads and wakes writers waiting for room.
+// Other threads change interest sets only through execute(), so all key updates happen here.
+final class SelectorLoop implements Runnable {
+
+    private static final long SELECT_TIMEOUT_MILLIS = 1_000;
+
+    private final NioHttpServer server;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean stopping;
+    private long lastIdleSweep = System.nanoTime();
+
+    SelectorLoop(NioHttpServer server, int index) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, "foodhub-nio-selector-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                NioConnection connection = new NioConnection(server, this, channel);
+                connection.attach(channel.register(selector, SelectionKey.OP_READ, connection));
+                server.connectionOpened();
+            } catch (IOException e) {
+                NioHttpServer.closeQuietly(channel);
+            }
+        });
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (!inLoop()) {
+            selector.wakeup();
+        }
+    }
+
+    void shutdown() {
+        stopping = true;
+        selector.wakeup();
+        try {
+            thread.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!stopping) {
+            try {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+            } catch (IOException e) {
+                e.printStackTrace();
+                break;
+            }
+            runTasks();
+
+            Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+            while (selected.hasNext()) {
+                SelectionKey key = selected.next();
+                selected.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                try {
+                    if (key.isValid() && key.isWritable()) {
+                        connection.onWritable();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        connection.onReadable();
+                    }
+                } catch (CancelledKeyException e) {
+                    connection.close();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    connection.close();
+                }
+            }
+
+            long now = System.nanoTime();
+            if (now - lastIdleSweep >= SELECT_TIMEOUT_MILLIS * 1_000_000) {
+                lastIdleSweep = now;
+                for (SelectionKey key : selector.keys()) {
+                    ((NioConnection) key.attachment()).closeIfIdle(now);
+                }
+            }
+        }
+
+        runTasks();
+        for (SelectionKey key : selector.keys()) {
+            ((NioConnection) key.attachment()).abort();
+        }
+        NioHttpServer.closeQuietly(selector);
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (CancelledKeyException e) {
+                // Connection closed while the task was queued
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.foodhub.ingest;
+
+import com.foodhub.dao.OrderDAO;
+import com.foodhub.model.Order;
+import com.foodhub.model.OrderItem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind order placement for traffic spikes.
+ *
+ * Validated orders are queued in memory and the caller gets a provisional reference at once.
+ * A single writer thread drains the queue and commits orders in groups, one transaction per
+ * group, so the database sees a few large commits instead of one commit per order. When the
+ * queue is full, submit() refuses the order and the caller is expected to push back on the client.
+ *
+ * Queued orders live only in memory: they are flushed on a clean shutdown but lost if the
+ * process dies, which is why this mode is opt-in.
+ */
+public class OrderIngestionQueue {
+
+    private static final int MAX_RETRY_AFTER_SECONDS = 60;
+
+    public enum State {
+        QUEUED,
+        COMMITTED,
+        FAILED
+    }
+
+    private final OrderDAO orderDAO;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long maxWaitMillis;
+    private final int maxTracked;
+    private final Map<String, Pending> tracked = new HashMap<>();
+    // References of committed or failed orders, oldest first; only these are ever forgotten
+    private final ArrayDeque<String> finished = new ArrayDeque<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    // Moving average of the writer's time per order, 0 until the first group is written
+    private volatile double nanosPerOrder;
+
+    public OrderIngestionQueue(OrderDAO orderDAO, int capacity, int batchSize, long maxWaitMillis, int maxTracked) {
+        this.orderDAO = orderDAO;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxTracked = maxTracked;
+        this.writer = new Thread(this::drain, "foodhub-order-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static OrderIngestionQueue fromSystemProperties(OrderDAO orderDAO) {
+        return new OrderIngestionQueue(orderDAO,
+                Integer.getInteger("foodhub.ingest.queueSize", 10_000),
+                Integer.getInteger("foodhub.ingest.batchSize", 100),
+                Integer.getInteger("foodhub.ingest.maxWaitMillis", 5),
+                Integer.getInteger("foodhub.ingest.maxTracked", 100_000));
+    }
+
+    // Provisional reference, or null if the queue is full (or shutting down)
+    public String submit(Order order, List<OrderItem> items) {
+        if (!running) {
+            rejected.increment();
+            return null;
+        }
+        Pending pending = new Pending(UUID.randomUUID().toString(), order, items);
+        synchronized (tracked) {
+            tracked.put(pending.reference, pending);
+            forgetFinished();
+        }
+        // A shutdown that lands after the check above may have let the writer exit already. Take
+        // the order back out in that case; if it is gone, the writer has it and will commit it.
+        if (!queue.offer(pending) || (!running && queue.remove(pending))) {
+            synchronized (tracked) {
+                tracked.remove(pending.reference);
+            }
+            rejected.increment();
+            return null;
+        }
+        accepted.increment();
+        return pending.reference;
+    }
+
+    // Null for unknown (or long forgotten) references
+    public Map<String, Object> status(String reference) {
+        Pending pending;
+        synchronized (tracked) {
+            pending = tracked.get(reference);
+        }
+        if (pending == null) {
+            return null;
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("reference", pending.reference);
+        status.put("state", pending.state);
+        if (pending.state == State.COMMITTED) {
+            status.put("orderId", pending.orderId);
+        }
+        return status;
+    }
+
+    // Seconds a rejected client should wait: the time the writer needs to work through what is
+    // queued now, at its measured rate (1 before anything has been written)
+    public int retryAfterSeconds() {
+        double seconds = queue.size() * nanosPerOrder / 1_000_000_000.0;
+        return (int) Math.min(MAX_RETRY_AFTER_SECONDS, Math.max(1, Math.ceil(seconds)));
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("capacity", queue.size() + queue.remainingCapacity());
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("committed", committed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batches", batches.sum());
+        stats.put("writeMicrosPerOrder", Math.round(nanosPerOrder / 1_000));
+        synchronized (tracked) {
+            stats.put("tracked", tracked.size());
+        }
+        return stats;
+    }
+
+    // Stop accepting orders and wait (bounded) for the writer to commit what is already queued
+    public void shutdown(long timeout, TimeUnit unit) {
+        running = false;
+        try {
+            writer.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Give concurrent submitters a moment to join this group
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                long start = System.nanoTime();
+                try {
+                    write(batch);
+                } finally {
+                    recordWrite(batch, System.nanoTime() - start);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void recordWrite(List<Pending> batch, long nanos) {
+        double sample = (double) nanos / batch.size();
+        nanosPerOrder = nanosPerOrder == 0 ? sample : nanosPerOrder * 0.8 + sample * 0.2;
+        synchronized (tracked) {
+            for (Pending pending : batch) {
+                // Still queued only if write() threw; the order has left the queue, so it failed
+                if (pending.state == State.QUEUED) {
+                    pending.state = State.FAILED;
+                    failed.increment();
+                }
+                finished.add(pending.reference);
+            }
+            forgetFinished();
+        }
+    }
+
+    // Oldest finished references go first; by then the client has long had its answer. Queued
+    // orders are never dropped, so the map holds at most maxTracked plus the queue capacity.
+    private void forgetFinished() {
+        while (tracked.size() > maxTracked && !finished.isEmpty()) {
+            tracked.remove(finished.poll());
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<Order> orders = new ArrayList<>(batch.size());
+        List<List<OrderItem>> items = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            orders.add(pending.order);
+            items.add(pending.items);
+        }
+        batches.increment();
+
+        List<Integer> ids = orderDAO.placeOrders(orders, items);
+        if (ids != null) {
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).committed(ids.get(i));
+            }
+            committed.add(batch.size());
+            return;
+        }
+
+        // One bad order must not sink the rest of the group; retry each on its own
+        for (Pending pending : batch) {
+            pending.order.setId(0);
+            for (OrderItem item : pending.items) {
+                item.setId(0);
+            }
+            int id = orderDAO.placeOrder(pending.order, pending.items);
+            if (id > 0) {
+                pending.committed(id);
+                committed.increment();
+            } else {
+                pending.state = State.FAILED;
+                failed.increment();
+            }
+        }
+    }
+
+    private static final class Pending {
+        final String reference;
+        final Order order;
+        final List<OrderItem> items;
+        volatile State state = State.QUEUED;
+        volatile int orderId;
+
+        Pending(String reference, Order order, List<OrderItem> items) {
+            this.reference = reference;
+            this.order = order;
+            this.items = items;
+        }
+
+        void committed(int id) {
+            orderId = id;
+            state = State.COMMITTED;
+        }
+    }
+}
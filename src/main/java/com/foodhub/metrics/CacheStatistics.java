@@ -0,0 +1,111 @@
+package com.foodhub.metrics;
+
+import com.foodhub.util.HibernateUtil;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Second-level and query cache statistics. Hits, misses and puts come from Hibernate; evictions
+ * are only known to the cache provider, so they are read from its JSR-107 statistics MBeans.
+ */
+public final class CacheStatistics {
+
+    private CacheStatistics() {
+    }
+
+    public static Map<String, Object> toMap() {
+        Statistics statistics = HibernateUtil.getSessionFactory().getStatistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String name : regionNames(statistics)) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if (region == null) {
+                continue;
+            }
+            long hits = region.getHitCount();
+            long misses = region.getMissCount();
+
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("hits", hits);
+            values.put("misses", misses);
+            values.put("puts", region.getPutCount());
+            values.put("evictions", evictions(name));
+            values.put("hitRatio", hits + misses == 0 ? 0.0 : Math.round(hits * 1000.0 / (hits + misses)) / 1000.0);
+            regions.put(name, values);
+        }
+        result.put("regions", regions);
+
+        Map<String, Object> queries = new LinkedHashMap<>();
+        queries.put("hits", statistics.getQueryCacheHitCount());
+        queries.put("misses", statistics.getQueryCacheMissCount());
+        queries.put("puts", statistics.getQueryCachePutCount());
+        result.put("queryCache", queries);
+        return result;
+    }
+
+    public static void writePrometheus(StringBuilder out) {
+        Statistics statistics = HibernateUtil.getSessionFactory().getStatistics();
+        String[] names = regionNames(statistics);
+        String[][] series = {
+                {"foodhub_cache_hits_total", "Second-level cache hits."},
+                {"foodhub_cache_misses_total", "Second-level cache misses."},
+                {"foodhub_cache_puts_total", "Second-level cache puts."},
+                {"foodhub_cache_evictions_total", "Second-level cache evictions."}
+        };
+        for (int i = 0; i < series.length; i++) {
+            out.append("# HELP ").append(series[i][0]).append(' ').append(series[i][1]).append('\n');
+            out.append("# TYPE ").append(series[i][0]).append(" counter\n");
+            for (String name : names) {
+                CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+                if (region == null) {
+                    continue;
+                }
+                long value;
+                switch (i) {
+                    case 0: value = region.getHitCount(); break;
+                    case 1: value = region.getMissCount(); break;
+                    case 2: value = region.getPutCount(); break;
+                    default: value = evictions(name);
+                }
+                out.append(series[i][0]).append("{region=\"").append(name).append("\"} ")
+                        .append(value).append('\n');
+            }
+        }
+    }
+
+    private static String[] regionNames(Statistics statistics) {
+        String[] names = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(names);
+        return names;
+    }
+
+    // -1 when the provider does not publish statistics for the region
+    private static long evictions(String region) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> names = server.queryNames(
+                    new ObjectName("javax.cache:type=CacheStatistics,Cache=" + ObjectName.quote(region) + ",*"), null);
+            if (names.isEmpty()) {
+                names = server.queryNames(
+                        new ObjectName("javax.cache:type=CacheStatistics,Cache=" + region + ",*"), null);
+            }
+            long total = 0;
+            for (ObjectName name : names) {
+                total += ((Number) server.getAttribute(name, "CacheEvictions")).longValue();
+            }
+            return names.isEmpty() ? -1 : total;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.foodhub.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of per-route metrics, rendered as JSON-friendly maps or as
+ * Prometheus text exposition format.
+ */
+public final class MetricsRegistry {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    // Prometheus histogram bucket bounds in seconds
+    private static final double[] BUCKET_SECONDS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private static final long startedAt = System.currentTimeMillis();
+
+    private MetricsRegistry() {
+    }
+
+    public static RouteMetrics route(String route) {
+        return routes.computeIfAbsent(route, RouteMetrics::new);
+    }
+
+    private static List<RouteMetrics> sortedRoutes() {
+        List<RouteMetrics> sorted = new ArrayList<>(routes.values());
+        sorted.sort((a, b) -> a.getRoute().compareTo(b.getRoute()));
+        return sorted;
+    }
+
+    public static Map<String, Object> toMap() {
+        double uptimeSeconds = (System.currentTimeMillis() - startedAt) / 1000.0;
+        Map<String, Object> routeMaps = new LinkedHashMap<>();
+        for (RouteMetrics metrics : sortedRoutes()) {
+            LatencyHistogram latency = metrics.getLatency();
+            long count = latency.count();
+
+            Map<String, Object> percentiles = new LinkedHashMap<>();
+            for (double p : PERCENTILES) {
+                percentiles.put("p" + formatPercentile(p), latency.percentile(p) / 1000.0);
+            }
+            percentiles.put("max", latency.maxMicros() / 1000.0);
+            percentiles.put("mean", count == 0 ? 0.0 : latency.sumMicros() / 1000.0 / count);
+
+            Map<String, Object> route = new LinkedHashMap<>();
+            route.put("requests", count);
+            route.put("requestsPerSecond", uptimeSeconds == 0 ? 0.0 : Math.round(count / uptimeSeconds * 100) / 100.0);
+            route.put("inFlight", metrics.getInFlight());
+            route.put("bytesWritten", metrics.getBytesWritten());
+            route.put("status", metrics.getStatusCounts());
+            route.put("latencyMillis", percentiles);
+            routeMaps.put(metrics.getRoute(), route);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("uptimeSeconds", uptimeSeconds);
+        result.put("routes", routeMaps);
+        return result;
+    }
+
+    public static void writePrometheus(StringBuilder out) {
+        List<RouteMetrics> sorted = sortedRoutes();
+
+        out.append("# HELP foodhub_http_requests_total Completed HTTP requests.\n");
+        out.append("# TYPE foodhub_http_requests_total counter\n");
+        for (RouteMetrics metrics : sorted) {
+            for (Map.Entry<Integer, Long> status : metrics.getStatusCounts().entrySet()) {
+                out.append("foodhub_http_requests_total{route=\"").append(metrics.getRoute())
+                        .append("\",status=\"").append(status.getKey()).append("\"} ")
+                        .append(status.getValue()).append('\n');
+            }
+        }
+
+        out.append("# HELP foodhub_http_in_flight Requests currently being handled.\n");
+        out.append("# TYPE foodhub_http_in_flight gauge\n");
+        for (RouteMetrics metrics : sorted) {
+            out.append("foodhub_http_in_flight{route=\"").append(metrics.getRoute()).append("\"} ")
+                    .append(metrics.getInFlight()).append('\n');
+        }
+
+        out.append("# HELP foodhub_http_response_bytes_total Response bytes written to the wire.\n");
+        out.append("# TYPE foodhub_http_response_bytes_total counter\n");
+        for (RouteMetrics metrics : sorted) {
+            out.append("foodhub_http_response_bytes_total{route=\"").append(metrics.getRoute()).append("\"} ")
+                    .append(metrics.getBytesWritten()).append('\n');
+        }
+
+        out.append("# HELP foodhub_http_request_duration_seconds Request latency.\n");
+        out.append("# TYPE foodhub_http_request_duration_seconds histogram\n");
+        for (RouteMetrics metrics : sorted) {
+            LatencyHistogram latency = metrics.getLatency();
+            String route = metrics.getRoute();
+            for (double bound : BUCKET_SECONDS) {
+                out.append("foodhub_http_request_duration_seconds_bucket{route=\"").append(route)
+                        .append("\",le=\"").append(bound).append("\"} ")
+                        .append(latency.countAtOrBelow((long) (bound * 1_000_000))).append('\n');
+            }
+            long count = latency.count();
+            out.append("foodhub_http_request_duration_seconds_bucket{route=\"").append(route)
+                    .append("\",le=\"+Inf\"} ").append(count).append('\n');
+            out.append("foodhub_http_request_duration_seconds_sum{route=\"").append(route).append("\"} ")
+                    .append(latency.sumMicros() / 1_000_000.0).append('\n');
+            out.append("foodhub_http_request_duration_seconds_count{route=\"").append(route).append("\"} ")
+                    .append(count).append('\n');
+        }
+    }
+
+    private static String formatPercentile(double p) {
+        return p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p).replace('.', '_');
+    }
+}
@@ -0,0 +1,56 @@
+package com.foodhub.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read model for order screens: the order, its customer and its items with menu names
+public class OrderDetail {
+
+    private Order order;
+    private Customer customer;
+    private List<Item> items = new ArrayList<>();
+
+    public OrderDetail() {}
+
+    public OrderDetail(Order order, Customer customer) {
+        this.order = order;
+        this.customer = customer;
+    }
+
+    public Order getOrder() { return order; }
+    public void setOrder(Order order) { this.order = order; }
+
+    public Customer getCustomer() { return customer; }
+    public void setCustomer(Customer customer) { this.customer = customer; }
+
+    public List<Item> getItems() { return items; }
+    public void setItems(List<Item> items) { this.items = items; }
+
+    public static class Item {
+        private int id;
+        private int menuItemId;
+        private String menuItemName;
+        private int quantity;
+        private BigDecimal unitPrice;
+        private BigDecimal subtotal;
+
+        public Item() {}
+
+        public Item(OrderItem orderItem, String menuItemName) {
+            this.id = orderItem.getId();
+            this.menuItemId = orderItem.getMenuItemId();
+            this.menuItemName = menuItemName;
+            this.quantity = orderItem.getQuantity();
+            this.unitPrice = orderItem.getUnitPrice();
+            this.subtotal = orderItem.getSubtotal();
+        }
+
+        public int getId() { return id; }
+        public int getMenuItemId() { return menuItemId; }
+        public String getMenuItemName() { return menuItemName; }
+        public int getQuantity() { return quantity; }
+        public BigDecimal getUnitPrice() { return unitPrice; }
+        public BigDecimal getSubtotal() { return subtotal; }
+    }
+}
@@ -8,8 +8,12 @@ import java.math.BigDecimal;
 @Table(name = "order_items")
 public class OrderItem {
 
+    // Table-backed ids are allocated in blocks, so inserts can be JDBC-batched (IDENTITY disables that)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_id")
+    @TableGenerator(name = "order_item_id", table = "id_generators",
+            pkColumnName = "gen_name", valueColumnName = "gen_value",
+            pkColumnValue = "order_items", allocationSize = 50)
     private int id;
 
     @Column(name = "orders_id", nullable = false)
@@ -0,0 +1,42 @@
+package com.foodhub.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Order lifecycle. Orders move forward through the kitchen and can be cancelled until they are ready.
+public enum OrderStatus {
+    PENDING,
+    PREPARING,
+    READY,
+    DELIVERED,
+    CANCELLED;
+
+    public Set<OrderStatus> nextStatuses() {
+        switch (this) {
+            case PENDING:
+                return EnumSet.of(PREPARING, CANCELLED);
+            case PREPARING:
+                return EnumSet.of(READY, CANCELLED);
+            case READY:
+                return EnumSet.of(DELIVERED);
+            default:
+                return EnumSet.noneOf(OrderStatus.class);
+        }
+    }
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return nextStatuses().contains(next);
+    }
+
+    // Null for unknown or missing values
+    public static OrderStatus parse(String status) {
+        if (status == null) {
+            return null;
+        }
+        try {
+            return valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
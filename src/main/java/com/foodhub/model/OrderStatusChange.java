@@ -0,0 +1,29 @@
+package com.foodhub.model;
+
+// Outcome of a requested status change for one order in a bulk update
+public class OrderStatusChange {
+
+    public enum Result {
+        UPDATED,
+        UNCHANGED,          // already in the requested status
+        NOT_FOUND,
+        INVALID_TRANSITION
+    }
+
+    private final int orderId;
+    private final String previousStatus;
+    private final String status;
+    private final Result result;
+
+    public OrderStatusChange(int orderId, String previousStatus, String status, Result result) {
+        this.orderId = orderId;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.result = result;
+    }
+
+    public int getOrderId() { return orderId; }
+    public String getPreviousStatus() { return previousStatus; }
+    public String getStatus() { return status; }
+    public Result getResult() { return result; }
+}
@@ -0,0 +1,456 @@
+package com.foodhub.reports;
+
+import com.foodhub.dao.MenuItemDAO;
+import com.foodhub.dao.OrderDAO;
+import com.foodhub.events.OrderEvent;
+import com.foodhub.events.OrderEventBus;
+import com.foodhub.model.MenuItem;
+import com.foodhub.model.OrderItem;
+import com.foodhub.model.OrderStatus;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revenue, order counts and item sales per day and order status, kept in memory so sales
+ * reports never scan the orders table.
+ *
+ * The counters are rebuilt from the primary once at startup, with a parallel scan over order id
+ * ranges, and then follow committed changes on the OrderEventBus. Money is counted in cents in
+ * plain longs. A status change moves the order's count and total right away; its items are
+ * moved by a background thread that loads them in batches, so item figures can trail order
+ * totals for a moment. Categories and item names are taken from the current menu when a report
+ * is built.
+ *
+ * Like the other in-memory caches, this only sees changes made through this process.
+ *
+ * Configured with system properties:
+ *   foodhub.reports.rebuildThreads     threads for the startup scan (default: available processors)
+ */
+public class SalesAggregates {
+
+    // One counter slot per OrderStatus, plus one for statuses outside the enum
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private static final int OTHER = STATUSES.length;
+    private static final int SLOTS = STATUSES.length + 1;
+
+    private static final int MOVE_BATCH_SIZE = 500;
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final OrderDAO orderDAO;
+    private final MenuItemDAO menuItemDAO;
+    private final int rebuildThreads;
+
+    private final ConcurrentSkipListMap<LocalDate, Day> days = new ConcurrentSkipListMap<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean ready;
+    private volatile long rebuildMillis;
+    private volatile Map<Integer, MenuItem> menu;
+
+    // Status changes whose items still have to be moved to the new status
+    private final Queue<ItemMove> pendingMoves = new ConcurrentLinkedQueue<>();
+    private final ExecutorService itemMover = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "foodhub-sales-items");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder scannedOrders = new LongAdder();
+    private final LongAdder appliedEvents = new LongAdder();
+    private final LongAdder failedItemMoves = new LongAdder();
+
+    public SalesAggregates(OrderDAO orderDAO, MenuItemDAO menuItemDAO, int rebuildThreads) {
+        this.orderDAO = orderDAO;
+        this.menuItemDAO = menuItemDAO;
+        this.rebuildThreads = Math.max(1, rebuildThreads);
+        MenuItemDAO.addChangeListener(() -> menu = null);
+    }
+
+    public static SalesAggregates fromSystemProperties(OrderDAO orderDAO, MenuItemDAO menuItemDAO) {
+        return new SalesAggregates(orderDAO, menuItemDAO,
+                Integer.getInteger("foodhub.reports.rebuildThreads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Rebuild from the database, then follow order events. Call before the server takes
+    // requests: orders committed while the scan runs would be missed. False if the rebuild
+    // failed, in which case reports stay unavailable.
+    public boolean start() {
+        if (!started.compareAndSet(false, true)) {
+            return ready;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return false;
+        }
+        OrderEventBus.addListener(this::apply);
+        ready = true;
+        return true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void rebuild() {
+        days.clear();
+        int[] range = orderDAO.getOrderIdRange();
+        long startNanos = System.nanoTime();
+        if (range != null) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(rebuildThreads, runnable -> {
+                Thread thread = new Thread(runnable, "foodhub-sales-rebuild-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                // More ranges than threads, so a dense stretch of ids does not hold up the rest
+                int ranges = rebuildThreads * RANGES_PER_THREAD;
+                long span = (long) range[1] - range[0] + 1;
+                List<Future<?>> scans = new ArrayList<>(ranges);
+                for (int i = 0; i < ranges; i++) {
+                    int fromId = (int) (range[0] + span * i / ranges);
+                    int toId = (int) (range[0] + span * (i + 1) / ranges - 1);
+                    if (fromId <= toId) {
+                        scans.add(pool.submit(() -> scan(fromId, toId)));
+                    }
+                }
+                for (Future<?> scan : scans) {
+                    scan.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while rebuilding sales aggregates", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Sales aggregates rebuild failed", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        rebuildMillis = (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private void scan(int fromId, int toId) {
+        orderDAO.streamOrderTotals(fromId, toId, row -> {
+            LocalDate day = toDay((Date) row[0]);
+            if (day != null) {
+                addOrders(day, slot((String) row[1]), 1, cents((BigDecimal) row[2]));
+            }
+            scannedOrders.increment();
+        });
+        orderDAO.streamOrderLines(fromId, toId, row -> {
+            LocalDate day = toDay((Date) row[0]);
+            if (day != null) {
+                addItems(day, slot((String) row[1]), (Integer) row[2], (Integer) row[3], cents((BigDecimal) row[4]));
+            }
+        });
+    }
+
+    // OrderEventBus listener: runs on the thread that committed the change, so it only touches counters
+    private void apply(OrderEvent event) {
+        LocalDate day = toDay(event.getOrderDate());
+        if (day == null) {
+            return;
+        }
+        appliedEvents.increment();
+        switch (event.getType()) {
+            case ORDER_CREATED:
+                addOrders(day, slot(event.getStatus()), 1, cents(event.getTotalAmount()));
+                addItems(day, slot(event.getStatus()), event.getItems(), 1);
+                break;
+            case ITEM_ADDED:
+                addItems(day, slot(event.getStatus()), event.getItems(), 1);
+                break;
+            case STATUS_CHANGED:
+                int from = slot(event.getPreviousStatus());
+                int to = slot(event.getStatus());
+                if (from == to) {
+                    return;
+                }
+                long total = cents(event.getTotalAmount());
+                addOrders(day, from, -1, -total);
+                addOrders(day, to, 1, total);
+                pendingMoves.add(new ItemMove(event.getOrderId(), day, from, to));
+                itemMover.execute(this::moveItems);
+                break;
+        }
+    }
+
+    // Move the items of changed orders to their new status; one query per batch of orders
+    private void moveItems() {
+        List<ItemMove> batch = new ArrayList<>();
+        while (true) {
+            ItemMove move;
+            while (batch.size() < MOVE_BATCH_SIZE && (move = pendingMoves.poll()) != null) {
+                batch.add(move);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                LinkedHashSet<Integer> orderIds = new LinkedHashSet<>();
+                for (ItemMove pending : batch) {
+                    orderIds.add(pending.orderId);
+                }
+                Map<Integer, List<OrderItem>> items = new HashMap<>();
+                for (OrderItem item : orderDAO.getOrderItemsByOrderIds(orderIds)) {
+                    items.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item);
+                }
+                for (ItemMove pending : batch) {
+                    List<OrderItem> orderItems = items.getOrDefault(pending.orderId, List.of());
+                    addItems(pending.day, pending.from, orderItems, -1);
+                    addItems(pending.day, pending.to, orderItems, 1);
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                failedItemMoves.add(batch.size());
+            }
+            batch.clear();
+        }
+    }
+
+    private void addOrders(LocalDate day, int slot, long count, long cents) {
+        Day counters = days.computeIfAbsent(day, key -> new Day());
+        counters.orders.addAndGet(slot, count);
+        counters.revenueCents.addAndGet(slot, cents);
+    }
+
+    private void addItems(LocalDate day, int slot, List<OrderItem> items, int sign) {
+        if (items == null) {
+            return;
+        }
+        for (OrderItem item : items) {
+            addItems(day, slot, item.getMenuItemId(), sign * item.getQuantity(), sign * cents(item.getSubtotal()));
+        }
+    }
+
+    private void addItems(LocalDate day, int slot, int menuItemId, long quantity, long cents) {
+        ItemSales sales = days.computeIfAbsent(day, key -> new Day())
+                .items.computeIfAbsent(menuItemId, key -> new ItemSales());
+        sales.quantity.addAndGet(slot, quantity);
+        sales.revenueCents.addAndGet(slot, cents);
+    }
+
+    //     Reports
+
+    // Totals for from..to (inclusive) over the given statuses, with a per-status breakdown over
+    // all statuses, revenue by menu category and the best-selling items by quantity
+    public Map<String, Object> report(LocalDate from, LocalDate to, List<OrderStatus> statuses, int top) {
+        boolean[] included = new boolean[SLOTS];
+        for (OrderStatus status : statuses) {
+            included[status.ordinal()] = true;
+        }
+
+        long orders = 0;
+        long revenue = 0;
+        long[] statusOrders = new long[SLOTS];
+        long[] statusRevenue = new long[SLOTS];
+        Map<Integer, long[]> itemTotals = new HashMap<>(); // menu item -> {quantity, cents}
+        List<Map<String, Object>> byDay = new ArrayList<>();
+
+        for (Map.Entry<LocalDate, Day> entry : days.subMap(from, true, to, true).entrySet()) {
+            Day day = entry.getValue();
+            long dayOrders = 0;
+            long dayRevenue = 0;
+            for (int slot = 0; slot < SLOTS; slot++) {
+                long slotOrders = day.orders.get(slot);
+                long slotRevenue = day.revenueCents.get(slot);
+                statusOrders[slot] += slotOrders;
+                statusRevenue[slot] += slotRevenue;
+                if (included[slot]) {
+                    dayOrders += slotOrders;
+                    dayRevenue += slotRevenue;
+                }
+            }
+            for (Map.Entry<Integer, ItemSales> item : day.items.entrySet()) {
+                long quantity = 0;
+                long cents = 0;
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    if (included[slot]) {
+                        quantity += item.getValue().quantity.get(slot);
+                        cents += item.getValue().revenueCents.get(slot);
+                    }
+                }
+                if (quantity != 0 || cents != 0) {
+                    long[] totals = itemTotals.computeIfAbsent(item.getKey(), id -> new long[2]);
+                    totals[0] += quantity;
+                    totals[1] += cents;
+                }
+            }
+            orders += dayOrders;
+            revenue += dayRevenue;
+            if (dayOrders != 0 || dayRevenue != 0) {
+                byDay.add(totals("date", entry.getKey().toString(), dayOrders, dayRevenue));
+            }
+        }
+
+        Map<String, Object> byStatus = new LinkedHashMap<>();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (slot < OTHER || statusOrders[slot] != 0) {
+                byStatus.put(slot < OTHER ? STATUSES[slot].name() : "OTHER",
+                        totals(null, null, statusOrders[slot], statusRevenue[slot]));
+            }
+        }
+
+        Map<Integer, MenuItem> menu = menu();
+        Map<String, long[]> categoryTotals = new HashMap<>();
+        List<Map.Entry<Integer, long[]>> items = new ArrayList<>();
+        for (Map.Entry<Integer, long[]> item : itemTotals.entrySet()) {
+            MenuItem menuItem = menu.get(item.getKey());
+            String category = menuItem == null ? "(removed)" : menuItem.getCategory();
+            long[] totals = categoryTotals.computeIfAbsent(category, key -> new long[2]);
+            totals[0] += item.getValue()[0];
+            totals[1] += item.getValue()[1];
+            items.add(item);
+        }
+
+        List<Map.Entry<String, long[]>> categories = new ArrayList<>(categoryTotals.entrySet());
+        categories.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+        List<Map<String, Object>> byCategory = new ArrayList<>();
+        for (Map.Entry<String, long[]> category : categories) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("category", category.getKey());
+            row.put("quantity", category.getValue()[0]);
+            row.put("revenue", money(category.getValue()[1]));
+            byCategory.add(row);
+        }
+
+        items.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+                ? Long.compare(b.getValue()[0], a.getValue()[0])
+                : Long.compare(b.getValue()[1], a.getValue()[1]));
+        List<Map<String, Object>> topItems = new ArrayList<>();
+        for (Map.Entry<Integer, long[]> item : items.subList(0, Math.min(top, items.size()))) {
+            MenuItem menuItem = menu.get(item.getKey());
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("menuItemId", item.getKey());
+            row.put("name", menuItem == null ? null : menuItem.getName());
+            row.put("category", menuItem == null ? null : menuItem.getCategory());
+            row.put("quantity", item.getValue()[0]);
+            row.put("revenue", money(item.getValue()[1]));
+            topItems.add(row);
+        }
+
+        List<String> statusNames = new ArrayList<>();
+        for (OrderStatus status : statuses) {
+            statusNames.add(status.name());
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("from", from.toString());
+        report.put("to", to.toString());
+        report.put("statuses", statusNames);
+        report.put("orders", orders);
+        report.put("revenue", money(revenue));
+        report.put("byDay", byDay);
+        report.put("byStatus", byStatus);
+        report.put("byCategory", byCategory);
+        report.put("topItems", topItems);
+        return report;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("days", days.size());
+        stats.put("rebuildMillis", rebuildMillis);
+        stats.put("scannedOrders", scannedOrders.sum());
+        stats.put("appliedEvents", appliedEvents.sum());
+        stats.put("pendingItemMoves", pendingMoves.size());
+        stats.put("failedItemMoves", failedItemMoves.sum());
+        return stats;
+    }
+
+    // Menu items by id, reloaded after any menu change
+    private Map<Integer, MenuItem> menu() {
+        Map<Integer, MenuItem> current = menu;
+        if (current == null) {
+            current = new HashMap<>();
+            for (MenuItem item : menuItemDAO.getAllMenuItems()) {
+                current.put(item.getId(), item);
+            }
+            menu = current;
+        }
+        return current;
+    }
+
+    private static Map<String, Object> totals(String key, Object value, long orders, long cents) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        if (key != null) {
+            row.put(key, value);
+        }
+        row.put("orders", orders);
+        row.put("revenue", money(cents));
+        return row;
+    }
+
+    private static int slot(String status) {
+        OrderStatus parsed = OrderStatus.parse(status);
+        return parsed == null ? OTHER : parsed.ordinal();
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static BigDecimal money(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // Order dates are calendar dates; java.sql.Date (as loaded) has no instant to convert
+    private static LocalDate toDay(Date date) {
+        if (date == null) {
+            return null;
+        }
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    // Counters for one order date
+    private static final class Day {
+        final AtomicLongArray orders = new AtomicLongArray(SLOTS);
+        final AtomicLongArray revenueCents = new AtomicLongArray(SLOTS);
+        final ConcurrentHashMap<Integer, ItemSales> items = new ConcurrentHashMap<>();
+    }
+
+    private static final class ItemSales {
+        final AtomicLongArray quantity = new AtomicLongArray(SLOTS);
+        final AtomicLongArray revenueCents = new AtomicLongArray(SLOTS);
+    }
+
+    private static final class ItemMove {
+        final int orderId;
+        final LocalDate day;
+        final int from;
+        final int to;
+
+        ItemMove(int orderId, LocalDate day, int from, int to) {
+            this.orderId = orderId;
+            this.day = day;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.foodhub.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous access log.
+ *
+ * Request threads claim a slot in a fixed-size ring buffer with a single CAS and fill it in;
+ * a background thread formats the records and appends them to a size-rolled file. When the
+ * ring is full, records are dropped and counted rather than blocking a request.
+ *
+ * Configured with system properties:
+ *   foodhub.accesslog.file            log file (default logs/access.log)
+ *   foodhub.accesslog.maxBytes        roll over at this size (default 10 MB)
+ *   foodhub.accesslog.maxFiles        rolled files to keep (default 5)
+ *   foodhub.accesslog.bodySampleRate  fraction of request bodies to log, 0.0-1.0 (default 0)
+ */
+public final class AccessLog {
+
+    private static final int CAPACITY = 1 << 14;
+    private static final int MASK = CAPACITY - 1;
+    private static final int MAX_BODY_CHARS = 2048;
+
+    private static final Path FILE = Paths.get(System.getProperty("foodhub.accesslog.file", "logs/access.log"));
+    private static final long MAX_BYTES = Long.getLong("foodhub.accesslog.maxBytes", 10L * 1024 * 1024);
+    private static final int MAX_FILES = Integer.getInteger("foodhub.accesslog.maxFiles", 5);
+    private static final double BODY_SAMPLE_RATE =
+            Double.parseDouble(System.getProperty("foodhub.accesslog.bodySampleRate", "0"));
+
+    private static final Slot[] ring = new Slot[CAPACITY];
+    private static final AtomicLong claimed = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile long consumed;
+
+    private static final Thread drainer;
+    private static volatile boolean running = true;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Slot(i - CAPACITY);
+        }
+        drainer = new Thread(AccessLog::drainLoop, "foodhub-access-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    private AccessLog() {
+    }
+
+    // Record one completed request
+    public static void record(String method, String path, int status, long bytes, long latencyMicros) {
+        Slot slot = claim();
+        if (slot == null) {
+            return;
+        }
+        slot.timestamp = System.currentTimeMillis();
+        slot.method = method;
+        slot.path = path;
+        slot.status = status;
+        slot.bytes = bytes;
+        slot.latencyMicros = latencyMicros;
+        slot.body = null;
+        slot.publish();
+    }
+
+    // Log a request body for a sampled fraction of requests (off by default)
+    public static void sampleBody(String method, String path, String body) {
+        if (BODY_SAMPLE_RATE <= 0 || ThreadLocalRandom.current().nextDouble() >= BODY_SAMPLE_RATE) {
+            return;
+        }
+        Slot slot = claim();
+        if (slot == null) {
+            return;
+        }
+        slot.timestamp = System.currentTimeMillis();
+        slot.method = method;
+        slot.path = path;
+        slot.status = 0;
+        slot.bytes = body.length();
+        slot.latencyMicros = 0;
+        slot.body = body.length() > MAX_BODY_CHARS ? body.substring(0, MAX_BODY_CHARS) : body;
+        slot.publish();
+    }
+
+    public static long droppedRecords() {
+        return dropped.get();
+    }
+
+    // Stop the drain thread after writing out everything already recorded
+    public static void shutdown() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Slot claim() {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed >= CAPACITY) {
+                dropped.incrementAndGet();
+                return null;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                Slot slot = ring[(int) (sequence & MASK)];
+                slot.pendingSequence = sequence;
+                return slot;
+            }
+        }
+    }
+
+    private static void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        BufferedWriter writer = null;
+        long fileBytes = 0;
+        long reportedDrops = 0;
+
+        while (true) {
+            long next = consumed;
+            Slot slot = ring[(int) (next & MASK)];
+            if (slot.published != next) {
+                if (!running) {
+                    break;
+                }
+                try {
+                    if (writer != null) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    closeQuietly(writer);
+                    writer = null;
+                }
+                LockSupport.parkNanos(1_000_000);
+                continue;
+            }
+
+            line.setLength(0);
+            format(slot, line);
+            consumed = next + 1; // frees the slot for producers
+
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                line.append(Instant.now()).append(" access log dropped ")
+                        .append(drops - reportedDrops).append(" records\n");
+                reportedDrops = drops;
+            }
+
+            try {
+                if (writer == null || fileBytes >= MAX_BYTES) {
+                    writer = roll(writer);
+                    fileBytes = Files.exists(FILE) ? Files.size(FILE) : 0;
+                }
+                writer.append(line);
+                fileBytes += utf8Length(line);
+            } catch (IOException e) {
+                System.err.println("Access log write failed: " + e.getMessage());
+                closeQuietly(writer);
+                writer = null;
+            }
+        }
+
+        closeQuietly(writer);
+    }
+
+    // Encoded size of the line, so the roll-over size is in file bytes rather than chars
+    private static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static void closeQuietly(BufferedWriter writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // method path status bytes latency-us, space separated; body records use status "-"
+    private static void format(Slot slot, StringBuilder line) {
+        line.append(Instant.ofEpochMilli(slot.timestamp)).append(' ')
+                .append(slot.method).append(' ')
+                .append(slot.path).append(' ');
+        if (slot.body == null) {
+            line.append(slot.status).append(' ')
+                    .append(slot.bytes).append(' ')
+                    .append(slot.latencyMicros);
+        } else {
+            line.append("- body ").append(slot.body.replace('\n', ' '));
+        }
+        line.append('\n');
+    }
+
+    private static BufferedWriter roll(BufferedWriter current) throws IOException {
+        if (current != null) {
+            current.close();
+            for (int i = MAX_FILES - 1; i >= 1; i--) {
+                Path from = rolled(i);
+                if (Files.exists(from)) {
+                    Files.move(from, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(FILE, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Path parent = FILE.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(FILE, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private static Path rolled(int index) {
+        return FILE.resolveSibling(FILE.getFileName() + "." + index);
+    }
+
+    private static final class Slot {
+        long pendingSequence;
+        volatile long published;
+
+        long timestamp;
+        String method;
+        String path;
+        int status;
+        long bytes;
+        long latencyMicros;
+        String body;
+
+        Slot(long initialSequence) {
+            this.published = initialSequence;
+        }
+
+        // The volatile write makes the fields above visible to the drain thread
+        void publish() {
+            published = pendingSequence;
+        }
+    }
+}
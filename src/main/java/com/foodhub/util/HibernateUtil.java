@@ -1,28 +1,387 @@
 package com.foodhub.util;
 
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
 import org.hibernate.SessionFactory;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.StatelessSession;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.query.Query;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Session factories for the primary database and its optional read replicas.
+ *
+ * Writes and anything that must see them go through openSession() (the primary). Read-only DAO
+ * methods use openReadSession() for cached lookups and openScan() for list queries; both pick a
+ * replica when any are configured. After a write, DAOs call recordWrite() for the customer and
+ * order they touched; for a short window reads about those keys go to the primary, so a customer
+ * sees the order they just placed even if the replica has not caught up yet.
+ *
+ * Configured with system properties:
+ *   foodhub.db.replicas                 comma-separated JDBC URLs of read replicas (default none)
+ *   foodhub.db.replicaUsername          replica user (default: the primary's)
+ *   foodhub.db.replicaPassword          replica password (default: the primary's)
+ *   foodhub.db.replicaMaxSessions       open sessions per replica (default: its pool size)
+ *   foodhub.db.replicaSelection         round-robin (default) | least-loaded
+ *   foodhub.db.readYourWritesMillis     how long reads about a written key stay on the primary (default 5000)
+ *   foodhub.db.readFetchSize            JDBC fetch size for list queries (default: driver default)
+ *
+ * Replicas run without the second-level and query cache. They lag behind the primary, so
+ * anything they returned could be cached after the primary had already invalidated it.
+ */
 public class HibernateUtil {
 
     private static final SessionFactory sessionFactory;
 
+    // Limits concurrently open sessions to two less than the JDBC pool size. The built-in pool
+    // throws instead of waiting when it runs dry, which virtual-thread-per-request would hit
+    // quickly. The spare connections are for the TABLE id generators of Order and OrderItem:
+    // each refills its block on its own isolated connection from the same pool, and both can
+    // refill at once while every session holds its own connection.
+    private static final Semaphore sessionPermits;
+    private static final int maxSessions;
+
+    private static final List<Replica> replicas;
+    private static final boolean leastLoaded = "least-loaded".equals(System.getProperty("foodhub.db.replicaSelection"));
+    private static final AtomicInteger nextReplica = new AtomicInteger();
+
+    // JDBC fetch size for read-only list queries; 0 keeps the driver default
+    private static final int READ_FETCH_SIZE = Integer.getInteger("foodhub.db.readFetchSize", 0);
+
+    private static final long readYourWritesNanos =
+            TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("foodhub.db.readYourWritesMillis", 5_000));
+    private static final int MAX_TRACKED_WRITES = 100_000;
+    private static final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+    private static final LongAdder primaryReads = new LongAdder();
+    private static final LongAdder readYourWritesReads = new LongAdder();
+
     static {
         try {
             // Create SessionFactory from hibernate.cfg.xml
-            sessionFactory = new Configuration().configure().buildSessionFactory();
+            Configuration configuration = loadConfiguration();
+            sessionFactory = configuration.buildSessionFactory();
+            maxSessions = Integer.getInteger("foodhub.db.maxSessions", Math.max(1, poolSize(configuration) - 2));
+            sessionPermits = new Semaphore(maxSessions, true);
         } catch (Throwable ex) {
             System.err.println("Initial SessionFactory creation failed." + ex);
             throw new ExceptionInInitializerError(ex);
         }
+        replicas = Collections.unmodifiableList(buildReplicas());
+    }
+
+    private static Configuration loadConfiguration() {
+        Configuration configuration = new Configuration().configure();
+
+        // Any -Dhibernate.* system property overrides the file (benchmarks and load tests
+        // use this to point at an embedded database)
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("hibernate.")) {
+                configuration.setProperty(name, System.getProperty(name));
+            }
+        }
+        return configuration;
+    }
+
+    private static int poolSize(Configuration configuration) {
+        return Integer.parseInt(
+                configuration.getProperties().getOrDefault("hibernate.connection.pool_size", "10").toString());
+    }
+
+    // A replica that cannot be reached at startup is left out rather than failing the server
+    private static List<Replica> buildReplicas() {
+        List<Replica> built = new ArrayList<>();
+        String urls = System.getProperty("foodhub.db.replicas", "");
+        for (String url : urls.split(",")) {
+            url = url.trim();
+            if (url.isEmpty()) {
+                continue;
+            }
+            try {
+                Configuration configuration = loadConfiguration();
+                configuration.setProperty("hibernate.connection.url", url);
+                if (System.getProperty("foodhub.db.replicaUsername") != null) {
+                    configuration.setProperty("hibernate.connection.username", System.getProperty("foodhub.db.replicaUsername"));
+                }
+                if (System.getProperty("foodhub.db.replicaPassword") != null) {
+                    configuration.setProperty("hibernate.connection.password", System.getProperty("foodhub.db.replicaPassword"));
+                }
+                configuration.setProperty("hibernate.cache.use_second_level_cache", "false");
+                configuration.setProperty("hibernate.cache.use_query_cache", "false");
+                int replicaSessions = Integer.getInteger("foodhub.db.replicaMaxSessions", poolSize(configuration));
+                built.add(new Replica(url, configuration.buildSessionFactory(), replicaSessions));
+            } catch (Throwable ex) {
+                System.err.println("Read replica " + withoutParameters(url) + " is unavailable, skipping it: " + ex);
+            }
+        }
+        return built;
     }
 
     public static SessionFactory getSessionFactory() {
         return sessionFactory;
     }
 
+    public static int replicaCount() {
+        return replicas.size();
+    }
+
+    // Open a session on the primary once a connection slot is free; the slot is returned when
+    // the session closes
+    public static Session openSession() {
+        return openSession(sessionFactory, sessionPermits);
+    }
+
+    // Read-only session for lookups that benefit from the second-level cache. Entities are
+    // loaded read-only (no dirty-checking snapshots) and the session never flushes. Runs on a
+    // replica unless one of the keys (customerKey, orderKey) was written within the
+    // read-your-writes window.
+    public static Session openReadSession(String... keys) {
+        Replica replica = route(keys);
+        Session session = replica == null
+                ? openSession()
+                : openSession(replica.factory, replica.permits);
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        if (replica != null) {
+            markConnectionReadOnly(session);
+        }
+        return session;
+    }
+
+    // Stateless session for list queries and scans: no persistence context at all, so rows
+    // become plain objects without entity entries or snapshots. Routed like openReadSession().
+    public static ReadOnlyScan openScan(String... keys) {
+        return openScanOn(route(keys));
+    }
+
+    // Stateless session on the primary, for scans that must not miss a recent write whatever
+    // the read-your-writes window (rebuilding in-memory aggregates)
+    public static ReadOnlyScan openPrimaryScan() {
+        primaryReads.increment();
+        return openScanOn(null);
+    }
+
+    private static ReadOnlyScan openScanOn(Replica replica) {
+        SessionFactory factory = replica == null ? sessionFactory : replica.factory;
+        Semaphore permits = replica == null ? sessionPermits : replica.permits;
+        permits.acquireUninterruptibly();
+        try {
+            StatelessSession session = factory.openStatelessSession();
+            if (replica != null) {
+                markConnectionReadOnly(session);
+            }
+            return new ReadOnlyScan(session, permits);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Null for the primary
+    private static Replica route(String... keys) {
+        if (replicas.isEmpty()) {
+            primaryReads.increment();
+            return null;
+        }
+        if (keys.length > 0 && recentlyWritten(keys)) {
+            readYourWritesReads.increment();
+            primaryReads.increment();
+            return null;
+        }
+        Replica replica = pickReplica();
+        replica.sessions.increment();
+        return replica;
+    }
+
+    // Replica pools never serve writes, so their connections are switched to read-only once and
+    // stay that way. Primary connections are left alone: the built-in pool does not reset the
+    // flag, and resetting it by hand costs MySQL two extra round trips per read.
+    private static void markConnectionReadOnly(SharedSessionContract session) {
+        try {
+            session.doWork(connection -> {
+                if (!connection.isReadOnly()) {
+                    connection.setReadOnly(true);
+                }
+            });
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    public static String customerKey(int customerId) {
+        return "customer:" + customerId;
+    }
+
+    public static String orderKey(int orderId) {
+        return "order:" + orderId;
+    }
+
+    // Call after a committed write so reads about these keys see it
+    public static void recordWrite(String... keys) {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        long until = System.nanoTime() + readYourWritesNanos;
+        for (String key : keys) {
+            recentWrites.put(key, until);
+        }
+        if (recentWrites.size() > MAX_TRACKED_WRITES) {
+            long now = System.nanoTime();
+            recentWrites.values().removeIf(expiresAt -> expiresAt - now <= 0);
+        }
+    }
+
+    private static boolean recentlyWritten(String... keys) {
+        long now = System.nanoTime();
+        for (String key : keys) {
+            Long until = recentWrites.get(key);
+            if (until != null) {
+                if (until - now > 0) {
+                    return true;
+                }
+                recentWrites.remove(key, until);
+            }
+        }
+        return false;
+    }
+
+    private static Replica pickReplica() {
+        int count = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), count);
+        if (!leastLoaded || count == 1) {
+            return replicas.get(start);
+        }
+        // Most free connection slots wins; ties go round-robin
+        Replica best = replicas.get(start);
+        for (int i = 1; i < count; i++) {
+            Replica candidate = replicas.get((start + i) % count);
+            if (candidate.permits.availablePermits() > best.permits.availablePermits()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static Session openSession(SessionFactory factory, Semaphore permits) {
+        permits.acquireUninterruptibly();
+        try {
+            return factory.withOptions()
+                    .eventListeners(new PermitReleasingListener(permits))
+                    .openSession();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("replicaSelection", leastLoaded ? "least-loaded" : "round-robin");
+        stats.put("primaryInUse", maxSessions - sessionPermits.availablePermits());
+        stats.put("primaryReads", primaryReads.sum());
+        stats.put("readYourWritesReads", readYourWritesReads.sum());
+        stats.put("trackedWrites", recentWrites.size());
+        List<Map<String, Object>> replicaStats = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("url", withoutParameters(replica.url));
+            entry.put("sessions", replica.sessions.sum());
+            entry.put("inUse", replica.maxSessions - replica.permits.availablePermits());
+            replicaStats.add(entry);
+        }
+        stats.put("replicas", replicaStats);
+        return stats;
+    }
+
+    // JDBC URLs may carry credentials in their parameters
+    private static String withoutParameters(String url) {
+        int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+
     public static void shutdown() {
         // Close caches and connection pools
+        for (Replica replica : replicas) {
+            replica.factory.close();
+        }
         getSessionFactory().close();
     }
-}
\ No newline at end of file
+
+    // A stateless read session together with the connection slot it holds
+    public static final class ReadOnlyScan implements AutoCloseable {
+        private final StatelessSession session;
+        private final Semaphore permits;
+        private boolean closed;
+
+        private ReadOnlyScan(StatelessSession session, Semaphore permits) {
+            this.session = session;
+            this.permits = permits;
+        }
+
+        // Query with the configured read fetch size (foodhub.db.readFetchSize)
+        public <T> Query<T> query(String hql, Class<T> type) {
+            Query<T> query = session.createQuery(hql, type);
+            if (READ_FETCH_SIZE > 0) {
+                query.setFetchSize(READ_FETCH_SIZE);
+            }
+            return query;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                session.close();
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private static final class Replica {
+        final String url;
+        final SessionFactory factory;
+        final Semaphore permits;
+        final int maxSessions;
+        final LongAdder sessions = new LongAdder();
+
+        Replica(String url, SessionFactory factory, int maxSessions) {
+            this.url = url;
+            this.factory = factory;
+            this.maxSessions = maxSessions;
+            this.permits = new Semaphore(maxSessions, true);
+        }
+    }
+
+    private static final class PermitReleasingListener implements SessionEventListener {
+        private final Semaphore permits;
+        private boolean released;
+
+        PermitReleasingListener(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public void end() {
+            if (!released) {
+                released = true;
+                permits.release();
+            }
+        }
+    }
+}
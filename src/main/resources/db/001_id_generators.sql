@@ -0,0 +1,18 @@
+-- Order and order item ids move from AUTO_INCREMENT to a table generator so that
+-- Hibernate can batch inserts. Run once against the existing foodhub schema.
+--
+-- Hibernate reserves ids in blocks of 50 and stores the upper bound of the block,
+-- so each row is seeded one block above the current maximum id.
+
+CREATE TABLE IF NOT EXISTS id_generators (
+    gen_name  VARCHAR(255) NOT NULL PRIMARY KEY,
+    gen_value BIGINT
+);
+
+INSERT INTO id_generators (gen_name, gen_value)
+SELECT 'orders', COALESCE(MAX(id), 0) + 51 FROM orders
+ON DUPLICATE KEY UPDATE gen_value = VALUES(gen_value);
+
+INSERT INTO id_generators (gen_name, gen_value)
+SELECT 'order_items', COALESCE(MAX(id), 0) + 51 FROM order_items
+ON DUPLICATE KEY UPDATE gen_value = VALUES(gen_value);
@@ -0,0 +1,5 @@
+-- Checkout looks customers up by phone number. Without an index every lookup,
+-- including the common "new number" miss, scans the customers table.
+-- Run once against the existing foodhub schema.
+
+CREATE INDEX idx_customers_phone ON customers (phone);